@@ -1,13 +1,87 @@
 package com.example.smartcalc;
 
 import android.app.Application;
+import android.content.pm.ApplicationInfo;
+import android.util.Log;
 
 import androidx.appcompat.app.AppCompatDelegate;
 
+import com.example.smartcalc.converter.ConverterRegistry;
+import com.example.smartcalc.converter.CurrencyRates;
+import com.example.smartcalc.converter.FileRateProvider;
+import com.example.smartcalc.converter.RateStore;
+import com.example.smartcalc.converter.UnitCategory;
+import com.example.smartcalc.history.HistoryLog;
+import com.example.smartcalc.metrics.EvaluationMetrics;
+
+import java.io.File;
+import java.io.IOException;
+
 public class App extends Application {
+	private static final String TAG = "App";
+	private static final String RATES_DIR = "rates";
+	private static final String RATES_FILE = "rates.bin";
+	private static final String HISTORY_FILE = "history.log";
+
+	// one log for the process, since fragments are recreated on every configuration change; never
+	// closed, as the process can be killed without notice anyway and a flush covers that
+	private HistoryLog history;
+	private boolean historyOpened;
+
 	@Override
 	public void onCreate() {
 		super.onCreate();
 		AppCompatDelegate.setDefaultNightMode(AppCompatDelegate.MODE_NIGHT_YES);
+		// stage timings and error counts in debuggable builds only; FrameTimeMonitor.log dumps them
+		EvaluationMetrics.setEnabled((getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) != 0);
+		Thread rates = new Thread(this::loadRates, "rates");
+		rates.setDaemon(true);
+		rates.start();
+	}
+
+	/**
+	 * The calculation history, opened on first use; null if it cannot be. Opening reads the file,
+	 * so call this off the main thread.
+	 */
+	public synchronized HistoryLog history() {
+		if (!historyOpened) {
+			historyOpened = true;
+			history = openHistory(new File(getFilesDir(), HISTORY_FILE));
+		}
+		return history;
+	}
+
+	private static HistoryLog openHistory(File file) {
+		try {
+			return new HistoryLog(file);
+		} catch (IOException e) {
+			// a damaged history is not worth keeping the calculator from working; start a new one
+			Log.w(TAG, "Discarding history: " + e.getMessage());
+			if (!file.delete()) return null;
+			try {
+				return new HistoryLog(file);
+			} catch (IOException again) {
+				Log.w(TAG, "History unavailable: " + again.getMessage());
+				return null;
+			}
+		}
+	}
+
+	/**
+	 * Serves the last stored currency rates and refreshes them from {@code files/rates/}, where a
+	 * download drops {@code snapshot.csv} and {@code delta-<version>.csv}. Until one has, the
+	 * bundled placeholder rates stay.
+	 */
+	private void loadRates() {
+		UnitCategory currency = ConverterRegistry.getInstance().getCategory("Currency");
+		CurrencyRates rates = currency == null ? null : currency.getRates();
+		if (rates == null) return;
+		File dir = new File(getFilesDir(), RATES_DIR);
+		try {
+			rates.attach(new FileRateProvider(dir), new RateStore(new File(getFilesDir(), RATES_FILE)));
+			if (dir.isDirectory()) rates.refresh();
+		} catch (IOException | IllegalArgumentException e) {
+			Log.w(TAG, "Currency rates not updated: " + e.getMessage());
+		}
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,120 @@
+package com.example.smartcalc;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Moves expression evaluation and unit conversion off the main thread. Work submitted in quick
+ * succession is debounced, and only the result of the most recent submission is delivered: older
+ * work that has not started is skipped, and results from work that was already running are dropped.
+ * Edits that must not be lost go through {@link #execute}, which runs them in order on the same
+ * worker thread. A task that throws is logged and dropped; it gets no callback and the worker
+ * carries on. Call {@link #submit}, {@link #cancelPending} and {@link #shutdown} on the main thread.
+ */
+public final class EvaluationScheduler {
+	private static final String TAG = "EvaluationScheduler";
+
+	public interface Callback<T> {
+		void onResult(T result);
+	}
+
+	private final Handler mainHandler = new Handler(Looper.getMainLooper());
+	private final ExecutorService worker = Executors.newSingleThreadExecutor(r -> {
+		Thread t = new Thread(r, "evaluation");
+		t.setDaemon(true);
+		return t;
+	});
+	private final long debounceMs;
+	private final AtomicLong generation = new AtomicLong();
+	private Runnable pendingDispatch;
+
+	// metrics; the main-thread total covers submit() and result delivery, the worker total the work itself
+	private final AtomicLong mainThreadNanos = new AtomicLong();
+	private final AtomicLong workerNanos = new AtomicLong();
+	private final AtomicLong delivered = new AtomicLong();
+	private final AtomicLong superseded = new AtomicLong();
+
+	public EvaluationScheduler(long debounceMs) {
+		this.debounceMs = debounceMs;
+	}
+
+	/** Runs {@code task} on the worker thread after everything submitted before it; never skipped. */
+	public void execute(Runnable task) {
+		worker.execute(() -> {
+			try {
+				task.run();
+			} catch (RuntimeException e) {
+				Log.e(TAG, "Task failed", e);
+			}
+		});
+	}
+
+	public <T> void submit(Callable<T> work, Callback<T> onResult) {
+		long start = SystemClock.elapsedRealtimeNanos();
+		final long gen = generation.incrementAndGet();
+		if (pendingDispatch != null) {
+			mainHandler.removeCallbacks(pendingDispatch);
+			superseded.incrementAndGet();
+		}
+		pendingDispatch = () -> {
+			pendingDispatch = null;
+			worker.execute(() -> run(gen, work, onResult));
+		};
+		mainHandler.postDelayed(pendingDispatch, debounceMs);
+		mainThreadNanos.addAndGet(SystemClock.elapsedRealtimeNanos() - start);
+	}
+
+	private <T> void run(long gen, Callable<T> work, Callback<T> onResult) {
+		if (gen != generation.get()) {
+			superseded.incrementAndGet();
+			return;
+		}
+		long start = SystemClock.elapsedRealtimeNanos();
+		T result;
+		try {
+			result = work.call();
+		} catch (Exception e) {
+			// rethrowing would reach the thread's uncaught exception handler, which on Android ends the process
+			Log.e(TAG, "Evaluation task failed", e);
+			return;
+		} finally {
+			workerNanos.addAndGet(SystemClock.elapsedRealtimeNanos() - start);
+		}
+		mainHandler.post(() -> {
+			if (gen != generation.get()) {
+				superseded.incrementAndGet();
+				return;
+			}
+			long deliverStart = SystemClock.elapsedRealtimeNanos();
+			onResult.onResult(result);
+			delivered.incrementAndGet();
+			mainThreadNanos.addAndGet(SystemClock.elapsedRealtimeNanos() - deliverStart);
+		});
+	}
+
+	/** Drops any submitted work that has not delivered yet, e.g. when the view goes away. */
+	public void cancelPending() {
+		generation.incrementAndGet();
+		if (pendingDispatch != null) {
+			mainHandler.removeCallbacks(pendingDispatch);
+			pendingDispatch = null;
+		}
+	}
+
+	public void shutdown() {
+		cancelPending();
+		worker.shutdown();
+	}
+
+	public long mainThreadNanos() { return mainThreadNanos.get(); }
+	public long workerNanos() { return workerNanos.get(); }
+	public long deliveredCount() { return delivered.get(); }
+	public long supersededCount() { return superseded.get(); }
+}
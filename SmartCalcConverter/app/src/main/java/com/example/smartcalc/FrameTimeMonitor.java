@@ -0,0 +1,74 @@
+package com.example.smartcalc;
+
+import android.util.Log;
+import android.view.Choreographer;
+
+import com.example.smartcalc.metrics.EvaluationMetrics;
+
+import java.util.Locale;
+
+/**
+ * Records frame-to-frame intervals on the main thread while started, so the effect of moving
+ * work off the UI thread shows up as fewer janky frames. Use from the main thread only.
+ */
+public final class FrameTimeMonitor implements Choreographer.FrameCallback {
+	private static final String TAG = "FrameTime";
+	// frames more than half a 60 Hz vsync late count as janky
+	private static final long JANK_NANOS = 25_000_000L;
+
+	private final String name;
+	private boolean running;
+	private long lastFrameNanos;
+	private long frames;
+	private long jankyFrames;
+	private long maxFrameNanos;
+	private long totalFrameNanos;
+
+	public FrameTimeMonitor(String name) {
+		this.name = name;
+	}
+
+	public void start() {
+		if (running) return;
+		running = true;
+		lastFrameNanos = 0;
+		Choreographer.getInstance().postFrameCallback(this);
+	}
+
+	public void stop() {
+		if (!running) return;
+		running = false;
+		Choreographer.getInstance().removeFrameCallback(this);
+	}
+
+	@Override
+	public void doFrame(long frameTimeNanos) {
+		if (!running) return;
+		if (lastFrameNanos != 0) {
+			long interval = frameTimeNanos - lastFrameNanos;
+			frames++;
+			totalFrameNanos += interval;
+			if (interval > maxFrameNanos) maxFrameNanos = interval;
+			if (interval > JANK_NANOS) jankyFrames++;
+		}
+		lastFrameNanos = frameTimeNanos;
+		Choreographer.getInstance().postFrameCallback(this);
+	}
+
+	public long frames() { return frames; }
+	public long jankyFrames() { return jankyFrames; }
+	public long maxFrameNanos() { return maxFrameNanos; }
+
+	/**
+	 * Logs frame statistics together with how the scheduler split its time between threads, and
+	 * the engine's {@link EvaluationMetrics} when they are enabled.
+	 */
+	public void log(EvaluationScheduler scheduler) {
+		Log.i(TAG, String.format(Locale.US,
+			"%s: %d frames, %d janky, avg %.1f ms, max %.1f ms; main thread %.1f ms vs worker %.1f ms; %d delivered, %d superseded",
+			name, frames, jankyFrames, frames == 0 ? 0 : totalFrameNanos / 1e6 / frames, maxFrameNanos / 1e6,
+			scheduler.mainThreadNanos() / 1e6, scheduler.workerNanos() / 1e6,
+			scheduler.deliveredCount(), scheduler.supersededCount()));
+		if (EvaluationMetrics.isEnabled()) Log.i(TAG, name + " engine metrics:\n" + EvaluationMetrics.snapshot());
+	}
+}
@@ -1,7 +1,7 @@
 package com.example.smartcalc.calculator;
 
 import android.os.Bundle;
-import android.text.TextUtils;
+import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -13,15 +13,40 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
 
+import com.example.smartcalc.App;
+import com.example.smartcalc.EvaluationScheduler;
+import com.example.smartcalc.FrameTimeMonitor;
 import com.example.smartcalc.R;
-import com.example.smartcalc.engine.ExpressionEvaluator;
+import com.example.smartcalc.engine.EvaluationResult;
+import com.example.smartcalc.engine.ExpressionSession;
+import com.example.smartcalc.history.HistoryLog;
 
+import java.io.IOException;
 import java.util.Locale;
 
 public class CalculatorFragment extends Fragment {
+	private static final String TAG = "Calculator";
+	private static final long DEBOUNCE_MS = 30;
+
 	private TextView tvExpression;
 	private TextView tvResult;
 	private boolean isSecond = false;
+	// the session is only touched on the scheduler's worker; expressionText mirrors its text for the UI
+	private final ExpressionSession session = new ExpressionSession();
+	private final StringBuilder expressionText = new StringBuilder();
+	private EvaluationScheduler scheduler;
+	private FrameTimeMonitor frameMonitor;
+	// the process-wide log from App, fetched and written on the scheduler's worker; null if unavailable
+	private HistoryLog history;
+
+	@Override
+	public void onCreate(@Nullable Bundle savedInstanceState) {
+		super.onCreate(savedInstanceState);
+		scheduler = new EvaluationScheduler(DEBOUNCE_MS);
+		frameMonitor = new FrameTimeMonitor("calculator");
+		App app = (App) requireContext().getApplicationContext();
+		scheduler.execute(() -> history = app.history());
+	}
 
 	@Nullable
 	@Override
@@ -29,11 +54,39 @@ public class CalculatorFragment extends Fragment {
 		View view = inflater.inflate(R.layout.fragment_calculator, container, false);
 		tvExpression = view.findViewById(R.id.tvExpression);
 		tvResult = view.findViewById(R.id.tvResult);
+		tvExpression.setText(expressionText);
 
 		setupButtons(view);
 		return view;
 	}
 
+	@Override
+	public void onResume() {
+		super.onResume();
+		frameMonitor.start();
+	}
+
+	@Override
+	public void onPause() {
+		frameMonitor.stop();
+		frameMonitor.log(scheduler);
+		// the process may be killed once in the background, so write the last entries now
+		scheduler.execute(this::flushHistory);
+		super.onPause();
+	}
+
+	@Override
+	public void onDestroyView() {
+		scheduler.cancelPending();
+		super.onDestroyView();
+	}
+
+	@Override
+	public void onDestroy() {
+		scheduler.shutdown();
+		super.onDestroy();
+	}
+
 	private void setupButtons(View root) {
 		int[] ids = new int[] {
 			R.id.btnSecond, R.id.btnPi, R.id.btnE, R.id.btnBack,
@@ -64,22 +117,25 @@ public class CalculatorFragment extends Fragment {
 			return;
 		}
 		if (id == R.id.btnAc) {
+			expressionText.setLength(0);
+			scheduler.execute(session::clear);
+			scheduler.cancelPending();
 			tvExpression.setText("");
 			tvResult.setText("0");
 			return;
 		}
 		if (id == R.id.btnBack) {
-			CharSequence cur = tvExpression.getText();
-			if (!TextUtils.isEmpty(cur)) {
-				String s = cur.toString();
-				s = s.substring(0, s.length() - 1);
-				tvExpression.setText(s);
+			if (expressionText.length() > 0) {
+				expressionText.setLength(expressionText.length() - 1);
+				scheduler.execute(session::backspace);
+				tvExpression.setText(expressionText);
 				evaluate();
 			}
 			return;
 		}
 
 		if (id == R.id.btnEquals) {
+			scheduler.execute(this::recordHistory);
 			evaluate();
 			return;
 		}
@@ -115,23 +171,40 @@ public class CalculatorFragment extends Fragment {
 	}
 
 	private void appendToken(String token) {
-		CharSequence cur = tvExpression.getText();
-		String next = (cur == null ? "" : cur.toString()) + token;
-		tvExpression.setText(next);
+		expressionText.append(token);
+		scheduler.execute(() -> session.append(token));
+		tvExpression.append(token);
 	}
 
 	private void evaluate() {
-		String expr = tvExpression.getText().toString();
-		if (expr.trim().isEmpty()) {
+		if (expressionText.length() == 0) {
+			scheduler.cancelPending();
 			tvResult.setText("0");
 			return;
 		}
+		scheduler.submit(this::computeResult, text -> tvResult.setText(text));
+	}
+
+	// runs on the scheduler's worker, after every edit queued before it; partial input such as
+	// "sin(" is previewed with its parens closed, and invalid input costs no exception
+	private String computeResult() {
+		EvaluationResult result = session.tryCurrentValue();
+		return result.isOk() ? pretty(result.value) : "";
+	}
+
+	// on the worker: only expressions that evaluate as typed, not previews with parens closed for them
+	private void recordHistory() {
+		if (history == null || session.length() == 0) return;
+		EvaluationResult result = session.tryCurrentValue();
+		if (result.isOk() && result.autoClosed == 0) history.append(session.text().toString(), result.value);
+	}
+
+	private void flushHistory() {
+		if (history == null) return;
 		try {
-			double val = ExpressionEvaluator.evaluate(expr);
-			String out = pretty(val);
-			tvResult.setText(out);
-		} catch (IllegalArgumentException ex) {
-			tvResult.setText("");
+			history.flush();
+		} catch (IOException e) {
+			Log.w(TAG, "History not saved: " + e.getMessage());
 		}
 	}
 
@@ -6,19 +6,62 @@ import android.view.ViewGroup;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
-import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
 
-public class ConversionResultsAdapter extends RecyclerView.Adapter<ConversionResultsAdapter.VH> {
-	private final List<ConversionResult> items = new ArrayList<>();
+/**
+ * Result rows keyed by unit name. New result lists are diffed on a background thread; a row whose
+ * unit is unchanged but whose value moved is rebound with a payload that only rewrites its value text.
+ */
+public class ConversionResultsAdapter extends ListAdapter<ConversionResult, ConversionResultsAdapter.VH> {
+	private static final Object PAYLOAD_VALUE = new Object();
+
+	private static final DiffUtil.ItemCallback<ConversionResult> DIFF = new DiffUtil.ItemCallback<ConversionResult>() {
+		@Override
+		public boolean areItemsTheSame(@NonNull ConversionResult oldItem, @NonNull ConversionResult newItem) {
+			return oldItem.unitName.equals(newItem.unitName);
+		}
+
+		@Override
+		public boolean areContentsTheSame(@NonNull ConversionResult oldItem, @NonNull ConversionResult newItem) {
+			return Double.compare(oldItem.value, newItem.value) == 0 && Objects.equals(oldItem.display, newItem.display);
+		}
+
+		@Override
+		public Object getChangePayload(@NonNull ConversionResult oldItem, @NonNull ConversionResult newItem) {
+			return PAYLOAD_VALUE;
+		}
+	};
+
+	// unit name -> stable id; unit names are unique within a category and reused across refreshes
+	private final Map<String, Long> ids = new HashMap<>();
+	private final ValueFormatter formatter = new ValueFormatter(Locale.getDefault());
+
+	public ConversionResultsAdapter() {
+		super(DIFF);
+		setHasStableIds(true);
+	}
 
 	public void submit(List<ConversionResult> newItems) {
-		items.clear();
-		items.addAll(newItems);
-		notifyDataSetChanged();
+		submitList(newItems);
+	}
+
+	@Override
+	public long getItemId(int position) {
+		String unit = getItem(position).unitName;
+		Long id = ids.get(unit);
+		if (id == null) {
+			id = (long) ids.size();
+			ids.put(unit, id);
+		}
+		return id;
 	}
 
 	@NonNull
@@ -30,18 +73,28 @@ public class ConversionResultsAdapter extends RecyclerView.Adapter<ConversionRes
 
 	@Override
 	public void onBindViewHolder(@NonNull VH holder, int position) {
-		ConversionResult item = items.get(position);
+		ConversionResult item = getItem(position);
 		holder.title.setText(item.unitName);
+		bindValue(holder, item);
+	}
+
+	@Override
+	public void onBindViewHolder(@NonNull VH holder, int position, @NonNull List<Object> payloads) {
+		if (payloads.isEmpty()) {
+			onBindViewHolder(holder, position);
+		} else {
+			bindValue(holder, getItem(position));
+		}
+	}
+
+	private void bindValue(VH holder, ConversionResult item) {
 		if (item.display != null) {
 			holder.subtitle.setText(item.display);
 		} else {
-			holder.subtitle.setText(String.format(Locale.getDefault(), "%.10g", item.value));
+			holder.subtitle.setText(formatter.format(item.value));
 		}
 	}
 
-	@Override
-	public int getItemCount() { return items.size(); }
-
 	static class VH extends RecyclerView.ViewHolder {
 		final TextView title;
 		final TextView subtitle;
@@ -51,4 +104,4 @@ public class ConversionResultsAdapter extends RecyclerView.Adapter<ConversionRes
 			subtitle = itemView.findViewById(android.R.id.text2);
 		}
 	}
-}
\ No newline at end of file
+}
@@ -1,12 +1,15 @@
 package com.example.smartcalc.converter;
 
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.text.Editable;
 import android.text.InputType;
 import android.text.TextWatcher;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
+import android.widget.AdapterView;
 import android.widget.ArrayAdapter;
 import android.widget.EditText;
 import android.widget.LinearLayout;
@@ -18,14 +21,16 @@ import androidx.fragment.app.Fragment;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
+import com.example.smartcalc.EvaluationScheduler;
+import com.example.smartcalc.FrameTimeMonitor;
 import com.example.smartcalc.R;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Locale;
-import java.util.Map;
 
 public class ConverterFragment extends Fragment {
+	private static final long DEBOUNCE_MS = 30;
+
 	private LinearLayout categoryContainer;
 	private EditText etInput;
 	private Spinner spinnerFrom;
@@ -33,7 +38,23 @@ public class ConverterFragment extends Fragment {
 	private ConversionResultsAdapter adapter;
 
 	private ConverterRegistry registry;
-	private String currentCategoryKey;
+	private EvaluationScheduler scheduler;
+	private FrameTimeMonitor frameMonitor;
+
+	// attached to the current view in onCreateView and detached in onDestroyView, so category
+	// switches never stack listeners; ConverterInputTest covers the wiring
+	private final ConverterInput input = new ConverterInput(this::convert);
+	// refreshes run off the main thread and may add or withdraw currencies, so the units are rebuilt here
+	private final Handler mainHandler = new Handler(Looper.getMainLooper());
+	private final Runnable onRatesChanged = () -> mainHandler.post(this::ratesChanged);
+	private final List<CurrencyRates> watchedRates = new ArrayList<>();
+
+	@Override
+	public void onCreate(@Nullable Bundle savedInstanceState) {
+		super.onCreate(savedInstanceState);
+		scheduler = new EvaluationScheduler(DEBOUNCE_MS);
+		frameMonitor = new FrameTimeMonitor("converter");
+	}
 
 	@Nullable
 	@Override
@@ -48,14 +69,52 @@ public class ConverterFragment extends Fragment {
 		adapter = new ConversionResultsAdapter();
 		rvResults.setAdapter(adapter);
 
-		registry = new ConverterRegistry();
+		input.attach(new ViewSource(etInput, spinnerFrom));
+
+		registry = ConverterRegistry.getInstance();
+		// before the first unit list is built, so no refresh in between goes unnoticed
+		for (String key : registry.getCategoryNames()) {
+			CurrencyRates rates = registry.getCategory(key).getRates();
+			if (rates == null) continue;
+			rates.addListener(onRatesChanged);
+			watchedRates.add(rates);
+		}
 		setupCategories();
 		return view;
 	}
 
+	@Override
+	public void onResume() {
+		super.onResume();
+		frameMonitor.start();
+	}
+
+	@Override
+	public void onPause() {
+		frameMonitor.stop();
+		frameMonitor.log(scheduler);
+		super.onPause();
+	}
+
+	@Override
+	public void onDestroyView() {
+		for (CurrencyRates rates : watchedRates) rates.removeListener(onRatesChanged);
+		watchedRates.clear();
+		mainHandler.removeCallbacksAndMessages(null);
+		input.detach();
+		scheduler.cancelPending();
+		super.onDestroyView();
+	}
+
+	@Override
+	public void onDestroy() {
+		scheduler.shutdown();
+		super.onDestroy();
+	}
+
 	private void setupCategories() {
-		Map<String, UnitCategory> categories = registry.getCategories();
-		for (String key : categories.keySet()) {
+		List<String> categories = registry.getCategoryNames();
+		for (String key : categories) {
 			android.widget.TextView chip = new android.widget.TextView(getContext());
 			chip.setText(key);
 			chip.setPadding(24, 12, 24, 12);
@@ -64,101 +123,87 @@ public class ConverterFragment extends Fragment {
 			chip.setOnClickListener(v -> selectCategory(key));
 			categoryContainer.addView(chip);
 		}
-		if (!categories.isEmpty()) selectCategory(categories.keySet().iterator().next());
+		if (!categories.isEmpty()) selectCategory(categories.get(0));
 	}
 
 	private void selectCategory(String key) {
-		currentCategoryKey = key;
-		UnitCategory category = registry.getCategories().get(key);
-		List<String> unitNames = new ArrayList<>(category.units.keySet());
-		ArrayAdapter<String> spinnerAdapter = new ArrayAdapter<>(requireContext(), android.R.layout.simple_spinner_dropdown_item, unitNames);
-		spinnerFrom.setAdapter(spinnerAdapter);
-		spinnerFrom.setSelection(0);
+		selectCategory(key, null);
+	}
+
+	/** Shows the units of {@code key}, selecting {@code keepUnit} if it is still one of them. */
+	private void selectCategory(String key, String keepUnit) {
+		UnitCategory category = registry.getCategory(key);
+		// one conversion per switch: the selection events of the new adapter are not a change of input
+		input.selectCategory(key, () -> {
+			List<String> unitNames = new ArrayList<>(category.listUnits());
+			ArrayAdapter<String> spinnerAdapter = new ArrayAdapter<>(requireContext(), android.R.layout.simple_spinner_dropdown_item, unitNames);
+			spinnerFrom.setAdapter(spinnerAdapter);
+			spinnerFrom.setSelection(Math.max(0, unitNames.indexOf(keepUnit)));
+			setInputType(category);
+		});
+	}
+
+	// new rates: rebuild the currency list if it is showing, which also converts against the new rates
+	private void ratesChanged() {
+		if (getView() == null) return;
+		String key = input.category();
+		UnitCategory category = key == null ? null : registry.getCategory(key);
+		if (category == null || category.getRates() == null) return;
+		selectCategory(key, (String) spinnerFrom.getSelectedItem());
+	}
 
+	private void setInputType(UnitCategory category) {
 		// Adjust input type per category
-		if (category.isSpecialRadix) {
+		if (category.kind == UnitCategory.Kind.RADIX) {
 			// Allow alphanumeric uppercase for hex; disable suggestions
 			etInput.setInputType(InputType.TYPE_CLASS_TEXT | InputType.TYPE_TEXT_FLAG_NO_SUGGESTIONS | InputType.TYPE_TEXT_FLAG_CAP_CHARACTERS);
 		} else {
 			etInput.setInputType(InputType.TYPE_CLASS_NUMBER | InputType.TYPE_NUMBER_FLAG_DECIMAL | InputType.TYPE_NUMBER_FLAG_SIGNED);
 		}
-
-		spinnerFrom.setOnItemSelectedListener(new android.widget.AdapterView.OnItemSelectedListener() {
-			@Override public void onItemSelected(android.widget.AdapterView<?> parent, View view, int position, long id) { recalc(); }
-			@Override public void onNothingSelected(android.widget.AdapterView<?> parent) {}
-		});
-		etInput.addTextChangedListener(new TextWatcher() {
-			@Override public void beforeTextChanged(CharSequence s, int start, int count, int after) {}
-			@Override public void onTextChanged(CharSequence s, int start, int before, int count) { recalc(); }
-			@Override public void afterTextChanged(Editable s) {}
-		});
-		recalc();
 	}
 
-	private void recalc() {
-		if (currentCategoryKey == null) return;
-		UnitCategory category = registry.getCategories().get(currentCategoryKey);
+	private void convert(String categoryKey, String unitName, String text) {
+		UnitCategory category = registry.getCategory(categoryKey);
 		if (category == null) return;
-		String unitName = (String) spinnerFrom.getSelectedItem();
-		if (unitName == null) return;
-
-		String text = etInput.getText().toString();
-		double input = 0.0;
-		try { input = Double.parseDouble(text); } catch (Exception ignored) {}
-
-		List<ConversionResult> results = new ArrayList<>();
-
-		if (category.isSpecialTemperature) {
-			double[] arr = category.convertTemperature(unitName, input);
-			String[] names = new String[] { "Celsius (°C)", "Fahrenheit (°F)", "Kelvin (K)" };
-			for (int i = 0; i < names.length; i++) results.add(new ConversionResult(names[i], arr[i]));
-		} else if (category.isSpecialRadix) {
-			// Parse input according to selected base
-			int base = unitName.startsWith("Binary") ? 2 : unitName.startsWith("Octal") ? 8 : unitName.startsWith("Hex") ? 16 : 10;
-			try {
-				long v = Long.parseLong(text.trim(), base);
-				results.add(new ConversionResult("Binary", Long.toBinaryString(v).toUpperCase(Locale.getDefault())));
-				results.add(new ConversionResult("Octal", Long.toOctalString(v).toUpperCase(Locale.getDefault())));
-				results.add(new ConversionResult("Decimal", Long.toString(v)));
-				results.add(new ConversionResult("Hex", Long.toHexString(v).toUpperCase(Locale.getDefault())));
-			} catch (Exception e) {
-				results.add(new ConversionResult("", ""));
-			}
-		} else if (category.isSpecialBmi) {
-			String categoryText;
-			if (input < 18.5) categoryText = "Underweight";
-			else if (input < 25) categoryText = "Normal";
-			else if (input < 30) categoryText = "Overweight";
-			else categoryText = "Obese";
-			results.add(new ConversionResult("BMI", input));
-			results.add(new ConversionResult("Category", categoryText));
-		} else if (category.isSpecialGst) {
-			for (Map.Entry<String, Double> e : category.units.entrySet()) {
-				String k = e.getKey();
-				double factor = e.getValue();
-				results.add(new ConversionResult(k, input * factor));
-			}
-		} else if (category.isSpecialDiscount) {
-			for (Map.Entry<String, Double> e : category.units.entrySet()) {
-				String k = e.getKey();
-				double factor = e.getValue();
-				results.add(new ConversionResult(k, input * factor));
-			}
-		} else if (category.isSpecialFinance) {
-			for (Map.Entry<String, Double> e : category.units.entrySet()) {
-				String k = e.getKey();
-				double factor = e.getValue();
-				results.add(new ConversionResult(k, input * factor));
-			}
-		} else {
-			double inBase = input * category.units.get(unitName);
-			for (Map.Entry<String, Double> e : category.units.entrySet()) {
-				String target = e.getKey();
-				double factor = e.getValue();
-				double outVal = inBase / factor;
-				results.add(new ConversionResult(target, outVal));
-			}
+		scheduler.submit(() -> category.convert(unitName, text), results -> adapter.submit(results));
+	}
+
+	/** The EditText and unit Spinner of one view, both reporting changes to the same listener. */
+	private static final class ViewSource implements ConverterInput.Source {
+		private final EditText text;
+		private final Spinner unit;
+		private TextWatcher watcher;
+
+		ViewSource(EditText text, Spinner unit) {
+			this.text = text;
+			this.unit = unit;
+		}
+
+		@Override
+		public void addListener(Runnable onChange) {
+			watcher = new TextWatcher() {
+				@Override public void beforeTextChanged(CharSequence s, int start, int count, int after) {}
+				@Override public void onTextChanged(CharSequence s, int start, int before, int count) { onChange.run(); }
+				@Override public void afterTextChanged(Editable s) {}
+			};
+			text.addTextChangedListener(watcher);
+			unit.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+				@Override public void onItemSelected(AdapterView<?> parent, View view, int position, long id) { onChange.run(); }
+				@Override public void onNothingSelected(AdapterView<?> parent) {}
+			});
 		}
-		adapter.submit(results);
+
+		@Override
+		public void removeListener(Runnable onChange) {
+			text.removeTextChangedListener(watcher);
+			unit.setOnItemSelectedListener(null);
+			watcher = null;
+		}
+
+		@Override
+		public String text() { return text.getText().toString(); }
+
+		@Override
+		public String unit() { return (String) unit.getSelectedItem(); }
 	}
 }
\ No newline at end of file
@@ -0,0 +1,92 @@
+package com.example.smartcalc.converter;
+
+/**
+ * The converter's input wiring without Android types, so it can be tested on the JVM. One change
+ * listener is registered per attached view, however often the category changes, and every change
+ * of input runs exactly one conversion: events while the unit list is rebound are ignored, and a
+ * listener reporting input that was already converted, as a Spinner does once laid out with a new
+ * adapter, converts nothing. {@link ConverterFragment} adapts its EditText and Spinner to a
+ * {@link Source}. Main thread only.
+ */
+final class ConverterInput {
+	/** The input widgets of one view. */
+	interface Source {
+		void addListener(Runnable onChange);
+
+		void removeListener(Runnable onChange);
+
+		String text();
+
+		/** The selected unit, or null while there is none. */
+		String unit();
+	}
+
+	interface Converter {
+		void convert(String category, String unit, String text);
+	}
+
+	private final Converter converter;
+	private final Runnable onChange = this::recalc;
+	private Source source;
+	private String category;
+	private boolean rebinding;
+	// the input of the last conversion, null to convert whatever comes next
+	private String lastCategory;
+	private String lastUnit;
+	private String lastText;
+
+	ConverterInput(Converter converter) {
+		this.converter = converter;
+	}
+
+	/** Listens to {@code source}, replacing any previous view; call from onCreateView. */
+	void attach(Source source) {
+		detach();
+		this.source = source;
+		lastCategory = null;
+		source.addListener(onChange);
+	}
+
+	/** Stops listening; call from onDestroyView. */
+	void detach() {
+		if (source == null) return;
+		source.removeListener(onChange);
+		source = null;
+	}
+
+	/** Switches to {@code category} and converts the current input once; registers nothing. */
+	void selectCategory(String category) {
+		selectCategory(category, () -> {});
+	}
+
+	/**
+	 * Switches to {@code category}, running {@code rebind} to put its units in the view, and then
+	 * converts the current input once, even if it is unchanged, as after new currency rates.
+	 */
+	void selectCategory(String category, Runnable rebind) {
+		this.category = category;
+		rebinding = true;
+		try {
+			rebind.run();
+		} finally {
+			rebinding = false;
+		}
+		lastCategory = null;
+		recalc();
+	}
+
+	String category() { return category; }
+
+	/** Converts the current input unless it was just converted or there is no view, category or unit. */
+	void recalc() {
+		if (rebinding || source == null || category == null) return;
+		String unit = source.unit();
+		if (unit == null) return;
+		String text = source.text();
+		if (category.equals(lastCategory) && unit.equals(lastUnit) && text.equals(lastText)) return;
+		lastCategory = category;
+		lastUnit = unit;
+		lastText = text;
+		converter.convert(category, unit, text);
+	}
+}
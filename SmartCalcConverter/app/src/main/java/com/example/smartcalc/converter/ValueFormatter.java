@@ -0,0 +1,68 @@
+package com.example.smartcalc.converter;
+
+import java.text.DecimalFormatSymbols;
+import java.util.Formatter;
+import java.util.Locale;
+
+/**
+ * Produces the same text as {@code String.format(locale, "%.10g", v)} for result rows. Values in
+ * the plain-notation range are rounded and written digit by digit into a reused buffer, so the
+ * only allocation is the returned String; everything else goes through one reused
+ * {@link Formatter}. Not thread-safe.
+ */
+final class ValueFormatter {
+	private static final int PRECISION = 10;
+	// well above the error of scaled, which is under 1e10 and so off by a few ulps of 2e-6 at most
+	private static final double TIE_WINDOW = 1e-5;
+	private static final double[] POW10 = {
+		1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13
+	};
+
+	private final Locale locale;
+	private final StringBuilder buffer = new StringBuilder(24);
+	private final Formatter fallback;
+	private final char decimalSeparator;
+	private final boolean asciiDigits;
+
+	ValueFormatter(Locale locale) {
+		this.locale = locale;
+		this.fallback = new Formatter(buffer, locale);
+		DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance(locale);
+		this.decimalSeparator = symbols.getDecimalSeparator();
+		this.asciiDigits = symbols.getZeroDigit() == '0';
+	}
+
+	String format(double v) {
+		buffer.setLength(0);
+		double abs = Math.abs(v);
+		// %g switches to scientific notation outside [1e-4, 1e10) once rounded to 10 digits
+		if (!asciiDigits || !(abs >= 1e-4 && abs < 9.9999999995e9)) return formatSlow(v);
+		int exp = (int) Math.floor(Math.log10(abs));
+		int scale = PRECISION - 1 - exp;
+		double scaled = abs * POW10[scale];
+		// %g rounds the shortest decimal form of v half-up, not its binary value, so a digit that
+		// is a tie within a few ulps of scaled (-79598.395165) is left to the Formatter
+		if (Math.abs(scaled - Math.floor(scaled) - 0.5) < TIE_WINDOW) return formatSlow(v);
+		long m = Math.round(scaled);
+		if (m >= (long) POW10[PRECISION]) {
+			m /= 10;
+			scale--;
+		}
+		if (v < 0) buffer.append('-');
+		int start = buffer.length();
+		buffer.append(m);
+		int intDigits = PRECISION - scale;
+		if (intDigits <= 0) {
+			for (int k = intDigits; k < 0; k++) buffer.insert(start, '0');
+			buffer.insert(start, decimalSeparator).insert(start, '0');
+		} else if (scale > 0) {
+			buffer.insert(start + intDigits, decimalSeparator);
+		}
+		return buffer.toString();
+	}
+
+	private String formatSlow(double v) {
+		fallback.format(locale, "%.10g", v);
+		return buffer.toString();
+	}
+}
@@ -0,0 +1,110 @@
+package com.example.smartcalc.converter;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/** One keystroke runs one conversion, however many times the category or the view changed. */
+public class ConverterInputTest {
+	/** Stands in for the EditText and Spinner: every keystroke notifies each registered listener. */
+	private static final class FakeSource implements ConverterInput.Source {
+		final List<Runnable> listeners = new ArrayList<>();
+		String text = "";
+		String unit = "meter (m)";
+
+		@Override public void addListener(Runnable onChange) { listeners.add(onChange); }
+		@Override public void removeListener(Runnable onChange) { listeners.remove(onChange); }
+		@Override public String text() { return text; }
+		@Override public String unit() { return unit; }
+
+		void type(char c) {
+			text += c;
+			changed();
+		}
+
+		/** A new unit list, selecting its first unit there and then, as setSelection does. */
+		void rebind(String firstUnit) {
+			unit = firstUnit;
+			changed();
+		}
+
+		void changed() {
+			for (Runnable l : new ArrayList<>(listeners)) l.run();
+		}
+	}
+
+	private final List<String> conversions = new ArrayList<>();
+	private final ConverterInput input = new ConverterInput((category, unit, text) -> conversions.add(category + ":" + unit + ":" + text));
+
+	@Test
+	public void oneConversionPerKeystrokeAfterCategorySwitches() {
+		FakeSource view = new FakeSource();
+		input.attach(view);
+		for (int k = 0; k <= 50; k++) {
+			input.selectCategory(k % 2 == 0 ? "Length" : "Mass");
+			conversions.clear();
+			view.type('1');
+			assertEquals("after " + k + " switches", 1, conversions.size());
+			assertEquals(1, view.listeners.size());
+		}
+		assertEquals("Length:meter (m):" + "1".repeat(51), conversions.get(0));
+	}
+
+	@Test
+	public void categorySwitchConvertsOnce() {
+		FakeSource view = new FakeSource();
+		input.attach(view);
+		view.type('5');
+		input.selectCategory("Length", () -> view.rebind("meter (m)"));
+		conversions.clear();
+
+		input.selectCategory("Mass", () -> view.rebind("gram (g)"));
+		// the Spinner reports the new adapter's selection again once it is laid out
+		view.changed();
+		assertEquals(1, conversions.size());
+		assertEquals("Mass:gram (g):5", conversions.get(0));
+
+		// reselecting the category converts again, for rates that changed underneath
+		input.selectCategory("Mass", () -> view.rebind("gram (g)"));
+		assertEquals(2, conversions.size());
+		view.type('0');
+		assertEquals(3, conversions.size());
+	}
+
+	@Test
+	public void recreatedViewMovesTheListener() {
+		FakeSource first = new FakeSource();
+		input.attach(first);
+		input.selectCategory("Length");
+		input.detach();
+		FakeSource second = new FakeSource();
+		input.attach(second);
+		input.attach(second);
+		input.selectCategory("Mass");
+		conversions.clear();
+
+		first.type('7');
+		assertEquals(0, conversions.size());
+		second.type('2');
+		assertEquals(1, conversions.size());
+		assertEquals("Mass:meter (m):2", conversions.get(0));
+		assertEquals(0, first.listeners.size());
+		assertEquals(1, second.listeners.size());
+	}
+
+	@Test
+	public void nothingConvertsWithoutViewCategoryOrUnit() {
+		input.selectCategory("Length");
+		FakeSource view = new FakeSource();
+		input.attach(view);
+		view.unit = null;
+		view.type('3');
+		input.detach();
+		view.type('4');
+		input.recalc();
+		assertEquals(0, conversions.size());
+	}
+}
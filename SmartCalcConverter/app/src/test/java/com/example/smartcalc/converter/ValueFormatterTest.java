@@ -0,0 +1,49 @@
+package com.example.smartcalc.converter;
+
+import org.junit.Test;
+
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/** ValueFormatter must print exactly what {@code %.10g} prints. */
+public class ValueFormatterTest {
+	private static void assertSameAsFormat(ValueFormatter f, Locale locale, double v) {
+		assertEquals(Double.toString(v), String.format(locale, "%.10g", v), f.format(v));
+	}
+
+	@Test
+	public void decimalTiesRoundHalfUp() {
+		ValueFormatter f = new ValueFormatter(Locale.US);
+		assertEquals("-79598.39517", f.format(-79598.395165));
+		double[] ties = { 0.00012345678905, 1.0000000005, 2.5000000005, 12345.678905, 9999999.9995, 123456789.05 };
+		for (double v : ties) {
+			assertSameAsFormat(f, Locale.US, v);
+			assertSameAsFormat(f, Locale.US, -v);
+		}
+	}
+
+	@Test
+	public void randomValuesMatchFormat() {
+		Random r = new Random(42);
+		Locale[] locales = { Locale.US, Locale.GERMANY, Locale.FRANCE };
+		for (Locale locale : locales) {
+			ValueFormatter f = new ValueFormatter(locale);
+			for (int i = 0; i < 50_000; i++) {
+				double v = (r.nextDouble() - 0.5) * Math.pow(10, r.nextInt(24) - 8);
+				assertSameAsFormat(f, locale, v);
+				// six or fewer decimals, where ties are common
+				assertSameAsFormat(f, locale, Math.round(v * 1e6) / 1e6);
+			}
+		}
+	}
+
+	@Test
+	public void edgesMatchFormat() {
+		ValueFormatter f = new ValueFormatter(Locale.US);
+		double[] edges = { 0, -0.0, 1e-4, 9.99999e-5, 0.99999999995, 1, 10, 999.99999995, 9.9999999995e9, 9.999999999e9, 1e10,
+			Double.MAX_VALUE, Double.MIN_VALUE, Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY };
+		for (double v : edges) assertSameAsFormat(f, Locale.US, v);
+	}
+}
@@ -0,0 +1,68 @@
+package com.example.smartcalc.converter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ConverterBenchmark {
+	@Param({ "Length", "Volume", "Temperature" })
+	public String categoryKey;
+
+	private ConverterRegistry registry;
+	private String fromUnit;
+	private final String text = "1234.5";
+	private UnitCategory category;
+	private int fromId;
+	private double[] row;
+
+	@Setup
+	public void setup() {
+		registry = ConverterRegistry.getInstance();
+		category = registry.getCategory(categoryKey);
+		fromUnit = category.unitName(0);
+		fromId = category.unitId(fromUnit);
+		row = new double[category.unitCount()];
+	}
+
+	/** What cold start pays now: category names only, no unit tables. */
+	@Benchmark
+	public ConverterRegistry registryConstruction() {
+		return new ConverterRegistry();
+	}
+
+	/** Construction plus building one category, i.e. the first visit to the converter screen. */
+	@Benchmark
+	public UnitCategory registryFirstCategory() {
+		return new ConverterRegistry().getCategory(categoryKey);
+	}
+
+	/** Every category built eagerly, which is what each {@code onCreateView} used to pay. */
+	@Benchmark
+	public Object registryBuildAll() {
+		return new ConverterRegistry().getCategories();
+	}
+
+	/** The per-keystroke path behind {@code ConverterFragment.recalc()}. */
+	@Benchmark
+	public List<ConversionResult> keystrokeRecalc() {
+		return registry.convert(categoryKey, fromUnit, text);
+	}
+
+	/** The same conversion through the compiled dispatch table: one fused row pass, no boxing. */
+	@Benchmark
+	public double[] keystrokeFactorRow() {
+		category.convertAll(fromId, 1234.5, row);
+		return row;
+	}
+}
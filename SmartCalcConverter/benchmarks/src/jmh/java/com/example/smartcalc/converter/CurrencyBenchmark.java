@@ -0,0 +1,62 @@
+package com.example.smartcalc.converter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/** Converting to every currency through the cross-rate matrix versus per-pair map lookups. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CurrencyBenchmark {
+	@Param({ "4", "160" })
+	public int currencies;
+
+	private final Map<String, Double> rates = new LinkedHashMap<>();
+	private String[] codes;
+	private RateUpdate snapshot;
+	private CrossRateMatrix matrix;
+	private double[] out;
+
+	@Setup
+	public void setup() {
+		codes = new String[currencies];
+		for (int i = 0; i < currencies; i++) {
+			codes[i] = String.format("C%03d", i);
+			rates.put(codes[i], 0.001 + i * 0.37);
+		}
+		snapshot = RateUpdate.full(1, 0, rates);
+		matrix = new CrossRateMatrix(snapshot, new AtomicLong(), new AtomicLong());
+		out = new double[currencies];
+	}
+
+	/** Baseline: two boxed map lookups and a division per target currency. */
+	@Benchmark
+	public double[] mapLookups() {
+		String from = codes[currencies / 2];
+		for (int i = 0; i < codes.length; i++) out[i] = 100.0 * rates.get(from) / rates.get(codes[i]);
+		return out;
+	}
+
+	@Benchmark
+	public double[] matrixRow() {
+		matrix.convertAll(matrix.id(codes[currencies / 2]), 100.0, out);
+		return out;
+	}
+
+	/** What a refresh pays to swap in new rates: rows are built later, on demand. */
+	@Benchmark
+	public CrossRateMatrix buildMatrix() {
+		return new CrossRateMatrix(snapshot, new AtomicLong(), new AtomicLong());
+	}
+}
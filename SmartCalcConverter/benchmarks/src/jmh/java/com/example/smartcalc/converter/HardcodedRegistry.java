@@ -0,0 +1,185 @@
+package com.example.smartcalc.converter;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Frozen copy of the registry before unit definitions moved to {@code units.csv}: every category
+ * built eagerly from hardcoded factors, ported to the current {@link UnitCategory} API. Kept only
+ * as the baseline for {@link UnitTableBenchmark}.
+ */
+final class HardcodedRegistry {
+	final Map<String, UnitCategory> categories = new LinkedHashMap<>();
+
+	HardcodedRegistry() {
+		add(length());
+		add(mass());
+		add(area());
+		add(time());
+		add(data());
+		add(speed());
+		add(temperature());
+		add(volume());
+		add(currency());
+		add(bmi());
+		add(gst());
+		add(discount());
+		add(finance());
+		add(date());
+		add(numeralSystem());
+	}
+
+	private void add(UnitCategory c) {
+		c.freeze();
+		categories.put(c.name, c);
+	}
+
+	private static UnitCategory length() {
+		UnitCategory c = new UnitCategory("Length");
+		c.addUnit("meter (m)", 1.0);
+		c.addUnit("kilometer (km)", 1000.0);
+		c.addUnit("centimeter (cm)", 0.01);
+		c.addUnit("millimeter (mm)", 0.001);
+		c.addUnit("mile (mi)", 1609.344);
+		c.addUnit("yard (yd)", 0.9144);
+		c.addUnit("foot (ft)", 0.3048);
+		c.addUnit("inch (in)", 0.0254);
+		return c;
+	}
+
+	private static UnitCategory mass() {
+		UnitCategory c = new UnitCategory("Mass");
+		c.addUnit("kilogram (kg)", 1.0);
+		c.addUnit("gram (g)", 0.001);
+		c.addUnit("milligram (mg)", 1e-6);
+		c.addUnit("pound (lb)", 0.45359237);
+		c.addUnit("ounce (oz)", 0.028349523125);
+		return c;
+	}
+
+	private static UnitCategory area() {
+		UnitCategory c = new UnitCategory("Area");
+		c.addUnit("square meter (m²)", 1.0);
+		c.addUnit("square kilometer (km²)", 1_000_000.0);
+		c.addUnit("square centimeter (cm²)", 0.0001);
+		c.addUnit("square millimeter (mm²)", 1e-6);
+		c.addUnit("hectare (ha)", 10_000.0);
+		c.addUnit("acre (ac)", 4046.8564224);
+		return c;
+	}
+
+	private static UnitCategory time() {
+		UnitCategory c = new UnitCategory("Time");
+		c.addUnit("second (s)", 1.0);
+		c.addUnit("minute (min)", 60.0);
+		c.addUnit("hour (h)", 3600.0);
+		c.addUnit("day (d)", 86400.0);
+		c.addUnit("week (wk)", 604800.0);
+		c.addUnit("year (yr)", 31557600.0);
+		return c;
+	}
+
+	private static UnitCategory data() {
+		UnitCategory c = new UnitCategory("Data");
+		c.addUnit("bit (b)", 1.0);
+		c.addUnit("byte (B)", 8.0);
+		c.addUnit("kilobyte (KB)", 8.0 * 1024);
+		c.addUnit("megabyte (MB)", 8.0 * 1024 * 1024);
+		c.addUnit("gigabyte (GB)", 8.0 * 1024 * 1024 * 1024);
+		c.addUnit("terabyte (TB)", 8.0 * 1024 * 1024 * 1024 * 1024);
+		return c;
+	}
+
+	private static UnitCategory speed() {
+		UnitCategory c = new UnitCategory("Speed");
+		c.addUnit("m/s", 1.0);
+		c.addUnit("km/h", 1000.0 / 3600.0);
+		c.addUnit("mph", 1609.344 / 3600.0);
+		c.addUnit("knot", 1852.0 / 3600.0);
+		return c;
+	}
+
+	private static UnitCategory temperature() {
+		UnitCategory c = new UnitCategory("Temperature");
+		c.addUnit("Celsius (°C)", UnitConversion.affine(1.0, 0.0));
+		c.addUnit("Fahrenheit (°F)", UnitConversion.affine(5.0 / 9.0, -160.0 / 9.0));
+		c.addUnit("Kelvin (K)", UnitConversion.affine(1.0, -273.15));
+		return c;
+	}
+
+	private static UnitCategory volume() {
+		UnitCategory c = new UnitCategory("Volume");
+		c.addUnit("liter (L)", 1.0);
+		c.addUnit("milliliter (mL)", 0.001);
+		c.addUnit("cubic meter (m³)", 1000.0);
+		c.addUnit("gallon (US)", 3.785411784);
+		c.addUnit("quart (US)", 0.946352946);
+		c.addUnit("pint (US)", 0.473176473);
+		c.addUnit("cup (US)", 0.2365882365);
+		c.addUnit("fluid ounce (US)", 0.0295735295625);
+		return c;
+	}
+
+	private static UnitCategory currency() {
+		UnitCategory c = new UnitCategory("Currency");
+		// Static placeholders; for production use live rates
+		c.addUnit("USD", 1.0);
+		c.addUnit("EUR", 1.1);
+		c.addUnit("INR", 0.012);
+		c.addUnit("JPY", 0.0065);
+		return c;
+	}
+
+	private static UnitCategory bmi() {
+		UnitCategory c = new UnitCategory("BMI", UnitCategory.Kind.BMI);
+		// Not a unit conversion; expose example calculation: interpret input as BMI and convert to category buckets
+		c.addUnit("BMI", 1.0);
+		return c;
+	}
+
+	private static UnitCategory gst() {
+		UnitCategory c = new UnitCategory("GST");
+		c.addUnit("Net Amount", UnitConversion.fanOut(1.0));
+		c.addUnit("Gross @5%", UnitConversion.fanOut(1.05));
+		c.addUnit("Gross @12%", UnitConversion.fanOut(1.12));
+		c.addUnit("Gross @18%", UnitConversion.fanOut(1.18));
+		c.addUnit("Gross @28%", UnitConversion.fanOut(1.28));
+		return c;
+	}
+
+	private static UnitCategory discount() {
+		UnitCategory c = new UnitCategory("Discount");
+		c.addUnit("Price", UnitConversion.fanOut(1.0));
+		c.addUnit("10% off", UnitConversion.fanOut(0.90));
+		c.addUnit("20% off", UnitConversion.fanOut(0.80));
+		c.addUnit("30% off", UnitConversion.fanOut(0.70));
+		c.addUnit("50% off", UnitConversion.fanOut(0.50));
+		return c;
+	}
+
+	private static UnitCategory finance() {
+		UnitCategory c = new UnitCategory("Finance");
+		c.addUnit("Principal", UnitConversion.fanOut(1.0));
+		c.addUnit("Simple Interest @10%/yr (1yr)", UnitConversion.fanOut(1.10));
+		c.addUnit("Compound Monthly @10%/yr (1yr)", UnitConversion.fanOut(Math.pow(1.10, 1.0)));
+		return c;
+	}
+
+	private static UnitCategory date() {
+		UnitCategory c = new UnitCategory("Date");
+		c.addUnit("Days", 1.0);
+		c.addUnit("Weeks", 7.0);
+		c.addUnit("Months (30d)", 30.0);
+		c.addUnit("Years (365d)", 365.0);
+		return c;
+	}
+
+	private static UnitCategory numeralSystem() {
+		UnitCategory c = new UnitCategory("Numeral System", UnitCategory.Kind.RADIX);
+		c.addUnit("Binary", 1.0);
+		c.addUnit("Octal", 1.0);
+		c.addUnit("Decimal", 1.0);
+		c.addUnit("Hex", 1.0);
+		return c;
+	}
+}
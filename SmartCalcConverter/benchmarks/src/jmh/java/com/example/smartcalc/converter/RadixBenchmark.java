@@ -0,0 +1,64 @@
+package com.example.smartcalc.converter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.math.BigInteger;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link RadixConverter} against {@link BigInteger}'s own string conversions, from a 64-bit value
+ * (19 decimal digits) up to a million digits. Decimal exercises the divide-and-conquer path, hex
+ * the bit-packing one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RadixBenchmark {
+	@Param({ "19", "1000", "100000", "1000000" })
+	public int digits;
+
+	@Param({ "10", "16" })
+	public int radix;
+
+	private final RadixConverter converter = new RadixConverter();
+	private String text;
+	private BigInteger value;
+
+	@Setup
+	public void setup() {
+		Random rnd = new Random(42);
+		StringBuilder sb = new StringBuilder(digits);
+		sb.append(Character.forDigit(1 + rnd.nextInt(radix - 1), radix));
+		while (sb.length() < digits) sb.append(Character.forDigit(rnd.nextInt(radix), radix));
+		text = sb.toString();
+		value = new BigInteger(text, radix);
+	}
+
+	@Benchmark
+	public BigInteger parse() {
+		return converter.parse(text, radix);
+	}
+
+	@Benchmark
+	public BigInteger parseBigInteger() {
+		return new BigInteger(text, radix);
+	}
+
+	@Benchmark
+	public CharSequence format() {
+		return converter.format(value, radix);
+	}
+
+	@Benchmark
+	public String formatBigInteger() {
+		return value.toString(radix);
+	}
+}
@@ -0,0 +1,69 @@
+package com.example.smartcalc.converter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/** Loading units from the compiled table versus the old hardcoded constructor. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class UnitTableBenchmark {
+	private byte[] tableBytes;
+	private Path tableFile;
+
+	@Setup
+	public void setup() throws IOException {
+		try (InputStream in = UnitTable.class.getResourceAsStream(UnitTable.RESOURCE)) {
+			tableBytes = in.readAllBytes();
+		}
+		tableFile = Files.createTempFile("units", ".bin");
+		Files.write(tableFile, tableBytes);
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		Files.deleteIfExists(tableFile);
+	}
+
+	/** Baseline: all 15 categories built from code, as every fragment used to do. */
+	@Benchmark
+	public Map<String, UnitCategory> hardcodedConstructor() {
+		return new HardcodedRegistry().categories;
+	}
+
+	/** Header validation only; the bytes are already in memory. */
+	@Benchmark
+	public UnitTable tableWrap() {
+		return new UnitTable(ByteBuffer.wrap(tableBytes));
+	}
+
+	@Benchmark
+	public UnitTable tableLoadResource() {
+		return UnitTable.load();
+	}
+
+	@Benchmark
+	public UnitTable tableMapFile() throws IOException {
+		return UnitTable.map(tableFile.toFile());
+	}
+
+	/** Registry over the table with every category materialised: like for like with the baseline. */
+	@Benchmark
+	public Map<String, UnitCategory> tableBuildAll() {
+		return new ConverterRegistry(new UnitTable(ByteBuffer.wrap(tableBytes))).getCategories();
+	}
+}
@@ -0,0 +1,102 @@
+package com.example.smartcalc.engine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One formula over a million rows: per-row scalar calls, the column-wise batch kernel, and the
+ * fork-join evaluator at increasing parallelism to show scaling from 1 to N cores. Promotion to
+ * bytecode is off, so the per-row calls stay on the interpreter the batch kernel is compared with.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class BatchBenchmark {
+	private static final int ROWS = 1_000_000;
+
+	/** The fork-join pool, so only the parallel benchmark runs once per thread count. */
+	@State(Scope.Benchmark)
+	public static class Pool {
+		@Param({ "1", "2", "4", "8" })
+		public int threads;
+
+		private ForkJoinPool pool;
+		private ParallelEvaluator parallel;
+
+		@Setup(Level.Trial)
+		public void setup() {
+			pool = new ForkJoinPool(threads);
+			parallel = new ParallelEvaluator(pool, ParallelEvaluator.DEFAULT_GRAIN, ParallelEvaluator.DEFAULT_THRESHOLD);
+		}
+
+		@TearDown(Level.Trial)
+		public void tearDown() {
+			pool.shutdown();
+		}
+	}
+
+	private CompiledExpression compiled;
+	private Map<String, double[]> columns;
+	private double[] x;
+	private double[] y;
+	private double[] out;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		ExpressionEvaluator.setJitThreshold(-1);
+		compiled = ExpressionEvaluator.compile("2*pi*x + y^2 - sqrt(x*y)/3");
+		Random random = new Random(42);
+		x = new double[ROWS];
+		y = new double[ROWS];
+		for (int i = 0; i < ROWS; i++) {
+			x[i] = random.nextDouble() * 100;
+			y[i] = random.nextDouble() * 100;
+		}
+		columns = new HashMap<>();
+		columns.put("x", x);
+		columns.put("y", y);
+		out = new double[ROWS];
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		ExpressionEvaluator.setJitThreshold(ExpressionEvaluator.DEFAULT_JIT_THRESHOLD);
+	}
+
+	@Benchmark
+	public double[] scalarPerRow() {
+		double[] values = new double[2];
+		for (int i = 0; i < ROWS; i++) {
+			values[0] = x[i];
+			values[1] = y[i];
+			out[i] = compiled.evaluate(values);
+		}
+		return out;
+	}
+
+	@Benchmark
+	public double[] serialBatch() {
+		ExpressionEvaluator.evaluateBatch(compiled, columns, out);
+		return out;
+	}
+
+	@Benchmark
+	public double[] parallelBatch(Pool pool) {
+		pool.parallel.evaluateBatch(compiled, columns, out);
+		return out;
+	}
+}
@@ -8,10 +8,14 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 
-public final class ExpressionEvaluator {
-	private ExpressionEvaluator() {}
+/**
+ * Frozen copy of the original evaluator: boxed {@code ArrayDeque<Double>} operand stack and
+ * {@code String} switches on every token. Kept only as the baseline for {@link ExpressionBenchmark}.
+ */
+final class BoxedRpnEvaluator {
+	private BoxedRpnEvaluator() {}
 
-	public static double evaluate(String expression) throws IllegalArgumentException {
+	static double evaluate(String expression) throws IllegalArgumentException {
 		if (expression == null) throw new IllegalArgumentException("null expr");
 		List<Token> tokens = tokenize(expression);
 		List<Token> rpn = toRpn(tokens);
@@ -0,0 +1,83 @@
+package com.example.smartcalc.engine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single-expression evaluation: the full cached {@code evaluate(String)} path, a cold compile,
+ * the compiled interpreter alone, and the original boxed evaluator as a baseline. Promotion to
+ * bytecode is off, so every path interprets; {@link JitBenchmark} measures the generated classes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ExpressionBenchmark {
+	@Param({ "short", "long", "nested" })
+	public String shape;
+
+	private String expression;
+	private CompiledExpression compiled;
+
+	@Setup
+	public void setup() {
+		ExpressionEvaluator.setJitThreshold(-1);
+		expression = expressionFor(shape);
+		compiled = ExpressionEvaluator.compile(expression);
+	}
+
+	@TearDown
+	public void tearDown() {
+		ExpressionEvaluator.setJitThreshold(ExpressionEvaluator.DEFAULT_JIT_THRESHOLD);
+	}
+
+	static String expressionFor(String shape) {
+		switch (shape) {
+			case "short":
+				return "1+2*3";
+			case "long": {
+				StringBuilder sb = new StringBuilder("sin(pi/6)");
+				for (int i = 1; i <= 40; i++) sb.append(i % 2 == 0 ? "+" : "*").append(i).append(".5/sqrt(").append(i).append(')');
+				return sb.toString();
+			}
+			case "nested": {
+				StringBuilder sb = new StringBuilder();
+				for (int i = 0; i < 32; i++) sb.append("(1+");
+				sb.append('2');
+				for (int i = 0; i < 32; i++) sb.append(")*1.01");
+				return sb.toString();
+			}
+			default:
+				throw new IllegalArgumentException(shape);
+		}
+	}
+
+	@Benchmark
+	public double evaluateCached() {
+		return ExpressionEvaluator.evaluate(expression);
+	}
+
+	@Benchmark
+	public CompiledExpression compileUncached() {
+		ExpressionEvaluator.clearCache();
+		return ExpressionEvaluator.compile(expression);
+	}
+
+	@Benchmark
+	public double evaluateCompiled() {
+		return compiled.evaluate();
+	}
+
+	@Benchmark
+	public double evaluateBoxedBaseline() {
+		return BoxedRpnEvaluator.evaluate(expression);
+	}
+}
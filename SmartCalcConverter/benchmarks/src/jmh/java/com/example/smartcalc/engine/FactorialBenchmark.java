@@ -0,0 +1,37 @@
+package com.example.smartcalc.engine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class FactorialBenchmark {
+	@Param({ "5", "20", "170" })
+	public double n;
+
+	@Param({ "0.25", "4.5", "-2.5" })
+	public double z;
+
+	@Benchmark
+	public double factorial() {
+		return ExpressionEvaluator.factorial(n);
+	}
+
+	@Benchmark
+	public double gamma() {
+		return ExpressionEvaluator.gamma(z);
+	}
+
+	@Benchmark
+	public double lgamma() {
+		return ExpressionEvaluator.lgamma(z);
+	}
+}
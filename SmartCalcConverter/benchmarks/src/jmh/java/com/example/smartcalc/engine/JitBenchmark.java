@@ -0,0 +1,55 @@
+package com.example.smartcalc.engine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The interpreter against the {@link BytecodeCompiler}'s generated class for the same optimized
+ * program, plus what the first promotion costs. {@code bytecode} goes through
+ * {@link CompiledExpression#evaluate(double[], double[])}, so it includes the metrics hook and the
+ * bound-variable check.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class JitBenchmark {
+	@Param({ "x*y+1", "sin(x)^2 + cos(y)^2 + x*y/(1+x)", "sqrt(x*x+y*y) + 1/sqrt(x*x+y*y) + ln(x) - log(y) + x^3 - 2*x^2 + 5*x - 7" })
+	public String expression;
+
+	private CompiledExpression compiled;
+	private final double[] values = { 1.5, 2.5 };
+	private double[] stack;
+
+	@Setup
+	public void setup() {
+		compiled = ExpressionEvaluator.compileUncached(expression, true);
+		if (!compiled.promote()) throw new IllegalStateException("Bytecode backend unavailable");
+		stack = new double[compiled.stackSize()];
+	}
+
+	/** {@code run} is always the interpreter, even after promotion. */
+	@Benchmark
+	public double interpreter() {
+		return compiled.run(values, stack);
+	}
+
+	@Benchmark
+	public double bytecode() {
+		return compiled.evaluate(values, stack);
+	}
+
+	/** One-off cost of generating, defining and instantiating the class. */
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public boolean promote() {
+		return ExpressionEvaluator.compileUncached(expression, true).promote();
+	}
+}
@@ -0,0 +1,72 @@
+package com.example.smartcalc.engine;
+
+import com.example.smartcalc.converter.ConverterRegistry;
+import com.example.smartcalc.converter.UnitCategory;
+import com.example.smartcalc.metrics.EvaluationMetrics;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the {@link EvaluationMetrics} hooks on the hottest paths, enabled and disabled in the
+ * same run. {@code evaluateBaseline} is {@link CompiledExpression#evaluate(double[], double[])}
+ * without the hooks: the interpreter plus the JIT threshold read that {@code evaluate} also does.
+ * The disabled cost is {@code evaluate} over {@code evaluateBaseline} at {@code enabled=false},
+ * which should stay under 1%; at {@code enabled=true} the same ratio is the price of collecting.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MetricsBenchmark {
+	@Param({ "false", "true" })
+	public boolean enabled;
+
+	private CompiledExpression compiled;
+	private final double[] values = { 1.5, 2.5 };
+	private double[] stack;
+	private UnitCategory length;
+
+	@Setup
+	public void setup() {
+		EvaluationMetrics.setEnabled(enabled);
+		// both paths on the interpreter, so only the hooks differ
+		ExpressionEvaluator.setJitThreshold(-1);
+		compiled = ExpressionEvaluator.compile("sin(x)^2 + cos(y)^2 + x*y/(1+x)");
+		stack = new double[compiled.stackSize()];
+		length = ConverterRegistry.getInstance().getCategory("Length");
+	}
+
+	@TearDown
+	public void tearDown() {
+		EvaluationMetrics.setEnabled(false);
+		EvaluationMetrics.reset();
+		ExpressionEvaluator.setJitThreshold(ExpressionEvaluator.DEFAULT_JIT_THRESHOLD);
+	}
+
+	@Benchmark
+	public double evaluateBaseline() {
+		double result = compiled.run(values, stack);
+		// the threshold read evaluate does after every interpreted run; -1 here, so it never promotes
+		return ExpressionEvaluator.getJitThreshold() < 0 ? result : Double.NaN;
+	}
+
+	@Benchmark
+	public double evaluate() {
+		return compiled.evaluate(values, stack);
+	}
+
+	@Benchmark
+	public List<?> convert() {
+		return length.convert("meter (m)", 1234.5);
+	}
+}
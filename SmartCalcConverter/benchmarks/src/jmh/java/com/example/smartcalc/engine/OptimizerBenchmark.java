@@ -0,0 +1,73 @@
+package com.example.smartcalc.engine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@link Optimizer}'s rewrite against the program as written, per evaluation and per batch of
+ * rows: constant folding ({@code 2*pi*r}, {@code sin(pi/6)*x}), identities and a repeated subexpression.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class OptimizerBenchmark {
+	private static final int ROWS = 4096;
+
+	@Param({ "2*pi*x*y", "sin(pi/6)*x + 1*y - 0", "sqrt(x*x+y*y) + 1/sqrt(x*x+y*y)" })
+	public String expression;
+
+	private CompiledExpression optimized;
+	private CompiledExpression plain;
+	private final double[] values = { 1.5, 2.5 };
+	private double[] stack;
+	private Map<String, double[]> columns;
+	private double[] out;
+
+	@Setup
+	public void setup() {
+		optimized = ExpressionEvaluator.compile(expression);
+		plain = ExpressionEvaluator.compileUncached(expression, false);
+		stack = new double[Math.max(optimized.stackSize(), plain.stackSize())];
+		Random random = new Random(42);
+		columns = new HashMap<>();
+		for (String name : optimized.variables()) {
+			double[] col = new double[ROWS];
+			for (int i = 0; i < ROWS; i++) col[i] = random.nextDouble() * 100;
+			columns.put(name, col);
+		}
+		out = new double[ROWS];
+	}
+
+	@Benchmark
+	public double evaluatePlain() {
+		return plain.run(values, stack);
+	}
+
+	@Benchmark
+	public double evaluateOptimized() {
+		return optimized.run(values, stack);
+	}
+
+	@Benchmark
+	public double[] batchPlain() {
+		ExpressionEvaluator.evaluateBatch(plain, columns, out);
+		return out;
+	}
+
+	@Benchmark
+	public double[] batchOptimized() {
+		ExpressionEvaluator.evaluateBatch(optimized, columns, out);
+		return out;
+	}
+}
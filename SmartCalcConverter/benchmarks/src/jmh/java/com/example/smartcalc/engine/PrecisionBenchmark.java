@@ -0,0 +1,49 @@
+package com.example.smartcalc.engine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.concurrent.TimeUnit;
+
+/** Cost of decimal evaluation relative to the double interpreter, with and without the integer fast path. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PrecisionBenchmark {
+	@Param({ "0.1+0.2", "1250*18/100+1250", "1.18*(1999.99-0.1*1999.99)/3", "2^0.5*sin(pi/6)" })
+	public String expression;
+
+	private CompiledExpression compiled;
+	private final MathContext mc = MathContext.DECIMAL64;
+
+	@Setup
+	public void setup() {
+		// the double side stays on the interpreter rather than a generated class
+		ExpressionEvaluator.setJitThreshold(-1);
+		compiled = ExpressionEvaluator.compile(expression);
+	}
+
+	@TearDown
+	public void tearDown() {
+		ExpressionEvaluator.setJitThreshold(ExpressionEvaluator.DEFAULT_JIT_THRESHOLD);
+	}
+
+	@Benchmark
+	public double doubleMode() {
+		return compiled.evaluate();
+	}
+
+	@Benchmark
+	public BigDecimal decimalMode() {
+		return compiled.evaluate(mc);
+	}
+}
@@ -0,0 +1,60 @@
+package com.example.smartcalc.engine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The calculator's per-keystroke preview of partial input, through the throwing API caught as
+ * the fragment used to, and through the result API. {@code 3+} fails either way;
+ * {@code 2*(3+(4} only fails when parentheses are not closed automatically.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PreviewBenchmark {
+	@Param({ "3+", "sin(", "2*(3+(4" })
+	public String expression;
+
+	private final ExpressionSession session = new ExpressionSession();
+
+	@Setup
+	public void setup() {
+		session.append(expression);
+	}
+
+	@Benchmark
+	public double sessionThrowing() {
+		try {
+			return session.currentValue();
+		} catch (IllegalArgumentException e) {
+			return Double.NaN;
+		}
+	}
+
+	@Benchmark
+	public EvaluationResult sessionResult() {
+		return session.tryCurrentValue();
+	}
+
+	@Benchmark
+	public double evaluateThrowing() {
+		try {
+			return ExpressionEvaluator.evaluate(expression);
+		} catch (IllegalArgumentException e) {
+			return Double.NaN;
+		}
+	}
+
+	@Benchmark
+	public EvaluationResult evaluateResult() {
+		return ExpressionEvaluator.tryEvaluate(expression);
+	}
+}
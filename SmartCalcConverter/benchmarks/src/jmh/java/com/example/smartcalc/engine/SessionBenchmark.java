@@ -0,0 +1,49 @@
+package com.example.smartcalc.engine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/** Typing a whole expression key by key, refreshing the live result after every key. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SessionBenchmark {
+	@Param({ "10", "50", "200" })
+	public int terms;
+
+	private String[] keys;
+
+	@Setup
+	public void setup() {
+		keys = new String[terms * 2 - 1];
+		for (int i = 0; i < keys.length; i++) keys[i] = i % 2 == 0 ? Integer.toString(i % 9 + 1) : (i % 4 == 1 ? "+" : "*");
+	}
+
+	@Benchmark
+	public void incrementalSession(Blackhole bh) {
+		ExpressionSession session = new ExpressionSession();
+		for (String key : keys) {
+			session.append(key);
+			try { bh.consume(session.currentValue()); } catch (IllegalArgumentException ignored) {}
+		}
+	}
+
+	@Benchmark
+	public void reparseEveryKey(Blackhole bh) {
+		ExpressionEvaluator.clearCache();
+		StringBuilder text = new StringBuilder();
+		for (String key : keys) {
+			text.append(key);
+			try { bh.consume(ExpressionEvaluator.evaluate(text.toString())); } catch (IllegalArgumentException ignored) {}
+		}
+	}
+}
@@ -0,0 +1,68 @@
+package com.example.smartcalc.engine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Frozen copy of the tokenizer before {@link Scanner}: a {@code substring} and
+ * {@link Double#parseDouble} per number, a {@code String} per operator and a lower-cased
+ * {@code String} per identifier. Kept only as the baseline for {@link TokenizerBenchmark}.
+ */
+final class SubstringTokenizer {
+	private SubstringTokenizer() {}
+
+	enum Type { NUMBER, OP, LPAREN, RPAREN, FUNC, FACT, CONST, VAR }
+
+	static final class Token {
+		final Type type;
+		final String text;
+		final double value;
+		Token(Type type, String text) { this.type = type; this.text = text; this.value = 0.0; }
+		Token(String literal, double value) { this.type = Type.NUMBER; this.value = value; this.text = literal; }
+	}
+
+	static List<Token> tokenize(String s) {
+		List<Token> out = new ArrayList<>();
+		int i = 0;
+		while (i < s.length()) {
+			char c = s.charAt(i);
+			if (Character.isWhitespace(c)) { i++; continue; }
+			if (Character.isDigit(c) || (c == '.' && i + 1 < s.length() && Character.isDigit(s.charAt(i+1)))) {
+				int j = i + 1;
+				while (j < s.length() && (Character.isDigit(s.charAt(j)) || s.charAt(j) == '.')) j++;
+				String literal = s.substring(i, j);
+				out.add(new Token(literal, Double.parseDouble(literal)));
+				i = j;
+				continue;
+			}
+			if (c == '(') { out.add(new Token(Type.LPAREN, "(")); i++; continue; }
+			if (c == ')') { out.add(new Token(Type.RPAREN, ")")); i++; continue; }
+			if (c == '!') { out.add(new Token(Type.FACT, "!")); i++; continue; }
+			if ("+-*/%^".indexOf(c) >= 0) { out.add(new Token(Type.OP, Character.toString(c))); i++; continue; }
+
+			// functions, consts and variables
+			if (Character.isLetter(c)) {
+				int j = i + 1;
+				while (j < s.length() && ExpressionEvaluator.isIdentifierPart(s.charAt(j))) j++;
+				String name = s.substring(i, j).toLowerCase(Locale.US);
+				if (name.equals("pi") || name.equals("e")) {
+					out.add(new Token(Type.CONST, name));
+				} else if (Opcodes.function(name) >= 0 || nextNonSpace(s, j) == '(') {
+					out.add(new Token(Type.FUNC, name));
+				} else {
+					out.add(new Token(Type.VAR, name));
+				}
+				i = j;
+				continue;
+			}
+			throw new IllegalArgumentException("Unexpected char: " + c);
+		}
+		return out;
+	}
+
+	private static char nextNonSpace(String s, int i) {
+		while (i < s.length() && Character.isWhitespace(s.charAt(i))) i++;
+		return i < s.length() ? s.charAt(i) : 0;
+	}
+}
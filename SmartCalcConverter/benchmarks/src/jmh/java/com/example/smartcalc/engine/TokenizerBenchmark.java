@@ -0,0 +1,66 @@
+package com.example.smartcalc.engine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tokenizing long expressions: the {@link Scanner} on its own, {@link ExpressionEvaluator#tokenize}
+ * building the token list from it, and the substring-based tokenizer it replaced. Number-heavy
+ * input mixes integers and decimals of up to 17 significant digits; the old tokenizer has no
+ * scientific notation, so the comparison leaves it out.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class TokenizerBenchmark {
+	@Param({ "numbers", "functions" })
+	public String shape;
+
+	@Param({ "1000" })
+	public int terms;
+
+	private String expression;
+
+	@Setup
+	public void setup() {
+		Random random = new Random(42);
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < terms; i++) {
+			if (i > 0) sb.append(" + ");
+			if (shape.equals("numbers")) {
+				sb.append(random.nextInt(1000)).append(" * ").append(random.nextDouble() * 1000);
+			} else {
+				sb.append("sin(x").append(i % 7).append(") ^ 2 / sqrt(pi * y)");
+			}
+		}
+		expression = sb.toString();
+	}
+
+	@Benchmark
+	public double scanOnly() {
+		Scanner scanner = new Scanner(expression);
+		double sum = 0;
+		while (scanner.next()) sum += scanner.value + scanner.opcode;
+		return sum;
+	}
+
+	@Benchmark
+	public List<?> tokenize() {
+		return ExpressionEvaluator.tokenize(expression);
+	}
+
+	@Benchmark
+	public List<?> substringBaseline() {
+		return SubstringTokenizer.tokenize(expression);
+	}
+}
@@ -0,0 +1,68 @@
+package com.example.smartcalc.history;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A history of {@code entries} distinct expressions: opening it and reading the newest entries,
+ * which only touches the tail of the log, against a prefix search over the whole index, and the
+ * caller's cost of an append, whose write happens in a batch on the log's own thread.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class HistoryBenchmark {
+	@Param({ "1000", "100000" })
+	public int entries;
+
+	private File file;
+	private HistoryLog log;
+	private int next;
+
+	@Setup
+	public void setup() throws IOException {
+		file = File.createTempFile("history", ".log");
+		file.delete();
+		try (HistoryLog fill = new HistoryLog(file)) {
+			for (int i = 0; i < entries; i++) fill.append(i % 7 + "*" + i + "+" + (i >> 3), i);
+		}
+		log = new HistoryLog(file);
+		log.search("", 1);
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		log.close();
+		file.delete();
+	}
+
+	@Benchmark
+	public List<HistoryEntry> openRecent() throws IOException {
+		try (HistoryLog opened = new HistoryLog(file)) {
+			return opened.recent(20);
+		}
+	}
+
+	@Benchmark
+	public List<HistoryEntry> search() {
+		return log.search("3*12", 20);
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.NANOSECONDS)
+	public HistoryEntry append() {
+		return log.append("sqrt(" + (next++ & 1023) + ")", next);
+	}
+}
@@ -0,0 +1,138 @@
+package com.example.smartcalc.converter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * The converter's categories, defined in {@code units.csv} and loaded from the compiled
+ * {@link UnitTable}. One immutable instance is shared process-wide through {@link #getInstance()};
+ * constructing it only reads category names, and each category is built and frozen on first
+ * access, at most once even when several threads race for it.
+ */
+public final class ConverterRegistry {
+	private static final class Holder {
+		static final ConverterRegistry INSTANCE = new ConverterRegistry();
+	}
+
+	/** Lazily built category: double-checked so reads after the first build are a single volatile load. */
+	private static final class Slot {
+		private final Supplier<UnitCategory> factory;
+		private volatile UnitCategory category;
+		private volatile long buildNanos = -1;
+
+		Slot(Supplier<UnitCategory> factory) { this.factory = factory; }
+
+		UnitCategory get() {
+			UnitCategory c = category;
+			if (c != null) return c;
+			synchronized (this) {
+				if (category == null) {
+					long t0 = System.nanoTime();
+					c = factory.get();
+					c.freeze();
+					buildNanos = System.nanoTime() - t0;
+					category = c;
+				}
+				return category;
+			}
+		}
+	}
+
+	private final Map<String, Slot> slots = new LinkedHashMap<>();
+	private final List<String> categoryNames;
+	private final long constructionNanos;
+
+	public static ConverterRegistry getInstance() { return Holder.INSTANCE; }
+
+	ConverterRegistry() {
+		this(null);
+	}
+
+	/** A registry over {@code table}, or over the bundled table if null. */
+	ConverterRegistry(UnitTable table) {
+		long t0 = System.nanoTime();
+		if (table == null) table = UnitTable.load();
+		UnitTable source = table;
+		for (int i = 0; i < table.categoryCount(); i++) {
+			int id = i;
+			register(table.categoryName(id), () -> category(source, id));
+		}
+		categoryNames = Collections.unmodifiableList(new ArrayList<>(slots.keySet()));
+		constructionNanos = System.nanoTime() - t0;
+	}
+
+	/** Category names in display order; never triggers a build. */
+	public List<String> getCategoryNames() { return categoryNames; }
+
+	/** The named category, built on first access, or null if there is no such category. */
+	public UnitCategory getCategory(String name) {
+		Slot s = slots.get(name);
+		return s == null ? null : s.get();
+	}
+
+	/** Every category, building any that have not been accessed yet. */
+	public Map<String, UnitCategory> getCategories() {
+		Map<String, UnitCategory> all = new LinkedHashMap<>();
+		for (Map.Entry<String, Slot> e : slots.entrySet()) all.put(e.getKey(), e.getValue().get());
+		return Collections.unmodifiableMap(all);
+	}
+
+	/** Nanoseconds spent in the constructor, table load included: what cold start pays before any category is used. */
+	public long getConstructionNanos() { return constructionNanos; }
+
+	/** Nanoseconds it took to build {@code name}'s unit table, or -1 if it has not been built yet. */
+	public long getBuildNanos(String name) {
+		Slot s = slots.get(name);
+		if (s == null) throw new IllegalArgumentException("Unknown category: " + name);
+		return s.buildNanos;
+	}
+
+	/** Sum of {@link #getBuildNanos} over the categories built so far. */
+	public long getTotalBuildNanos() {
+		long total = 0;
+		for (Slot s : slots.values()) if (s.buildNanos > 0) total += s.buildNanos;
+		return total;
+	}
+
+	/** Converts {@code value} in {@code fromUnit} to every unit of {@code category}. */
+	public List<ConversionResult> convert(String category, String fromUnit, double value) {
+		return require(category).convert(fromUnit, value);
+	}
+
+	/** Like {@link #convert(String, String, double)} but parses raw input, as typed into the converter. */
+	public List<ConversionResult> convert(String category, String fromUnit, String text) {
+		return require(category).convert(fromUnit, text);
+	}
+
+	private UnitCategory require(String category) {
+		UnitCategory c = getCategory(category);
+		if (c == null) throw new IllegalArgumentException("Unknown category: " + category);
+		return c;
+	}
+
+	private void register(String name, Supplier<UnitCategory> factory) {
+		slots.put(name, new Slot(factory));
+	}
+
+	private static UnitCategory category(UnitTable table, int id) {
+		int kind = table.kind(id);
+		UnitCategory c = new UnitCategory(table.categoryName(id), kind == UnitTable.BMI ? UnitCategory.Kind.BMI
+			: kind == UnitTable.RADIX ? UnitCategory.Kind.RADIX
+			: kind == UnitTable.CURRENCY ? UnitCategory.Kind.CURRENCY
+			: UnitCategory.Kind.NUMERIC);
+		int first = table.firstUnit(id);
+		int end = first + table.unitCount(id);
+		for (int u = first; u < end; u++) {
+			double f = table.factor(u);
+			c.addUnit(table.unitName(u), kind == UnitTable.AFFINE ? UnitConversion.affine(f, table.offset(u))
+				: kind == UnitTable.FAN_OUT ? UnitConversion.fanOut(f)
+				: UnitConversion.linear(f));
+		}
+		if (kind == UnitTable.CURRENCY) c.bindRates(new CurrencyRates(RateUpdate.full(0, 0, c.units)));
+		return c;
+	}
+}
@@ -0,0 +1,82 @@
+package com.example.smartcalc.converter;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Immutable set of currency rates with cached cross rates. Row {@code from} holds the factor from
+ * that currency to every other one and is computed on first use, so a refresh costs O(n) rather
+ * than O(n&sup2;) and only the currencies people convert from are ever expanded. Lookups index
+ * arrays by currency id; the code &rarr; id map is consulted once per conversion.
+ */
+public final class CrossRateMatrix {
+	public final long version;
+	public final long timestampMillis;
+	private final String[] codes;
+	private final List<String> codeList;
+	private final Map<String, Integer> ids;
+	private final double[] usdPerUnit;
+	private final AtomicReferenceArray<double[]> rows;
+	private final AtomicLong hits;
+	private final AtomicLong misses;
+
+	CrossRateMatrix(RateUpdate rates, AtomicLong hits, AtomicLong misses) {
+		if (!rates.isFull()) throw new IllegalArgumentException("Cross rates need a full snapshot");
+		int n = rates.size();
+		this.version = rates.version;
+		this.timestampMillis = rates.timestampMillis;
+		this.codes = new String[n];
+		this.usdPerUnit = new double[n];
+		this.ids = new HashMap<>(n * 2);
+		for (int i = 0; i < n; i++) {
+			codes[i] = rates.code(i);
+			usdPerUnit[i] = rates.rate(i);
+			ids.put(codes[i], i);
+		}
+		this.codeList = Collections.unmodifiableList(Arrays.asList(codes));
+		this.rows = new AtomicReferenceArray<>(n);
+		this.hits = hits;
+		this.misses = misses;
+	}
+
+	public int size() { return codes.length; }
+
+	public String code(int id) { return codes[id]; }
+
+	/** Currency codes in id order. */
+	public List<String> codes() { return codeList; }
+
+	/** Id of {@code code}, or -1 if it has no rate. */
+	public int id(String code) {
+		Integer id = ids.get(code);
+		return id == null ? -1 : id;
+	}
+
+	public double rate(int fromId, int toId) { return row(fromId)[toId]; }
+
+	/** Writes {@code value} in currency {@code fromId} converted to every currency into {@code out}. */
+	public void convertAll(int fromId, double value, double[] out) {
+		double[] row = row(fromId);
+		for (int to = 0; to < row.length; to++) out[to] = value * row[to];
+	}
+
+	private double[] row(int fromId) {
+		double[] row = rows.get(fromId);
+		if (row != null) {
+			hits.incrementAndGet();
+			return row;
+		}
+		misses.incrementAndGet();
+		// racing builders compute identical rows, so whichever is published first is as good as any
+		double f = usdPerUnit[fromId];
+		row = new double[codes.length];
+		for (int to = 0; to < row.length; to++) row[to] = f / usdPerUnit[to];
+		rows.compareAndSet(fromId, null, row);
+		return rows.get(fromId);
+	}
+}
@@ -0,0 +1,96 @@
+package com.example.smartcalc.converter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Live rates behind the Currency category. Starts from the bundled placeholder rates; once
+ * {@link #attach attached} to a provider and a store it serves the stored snapshot and refreshes
+ * it with deltas. Conversions read the current {@link CrossRateMatrix}, swapped atomically on
+ * refresh, so they never block on I/O. Listeners hear of every new matrix, whose currencies may
+ * differ from the last one's.
+ */
+public final class CurrencyRates {
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private volatile CrossRateMatrix matrix;
+	private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+
+	private RateProvider provider;
+	private RateStore store;
+	private volatile long lastRefreshNanos = -1;
+	private volatile long refreshes;
+	private volatile long refreshFailures;
+
+	CurrencyRates(RateUpdate seed) {
+		matrix = new CrossRateMatrix(seed, hits, misses);
+	}
+
+	public CrossRateMatrix matrix() { return matrix; }
+
+	/** Uses {@code store}'s snapshot, if it has one, and refreshes from {@code provider} from then on. */
+	public synchronized void attach(RateProvider provider, RateStore store) {
+		this.provider = provider;
+		this.store = store;
+		RateUpdate stored = store.snapshot();
+		if (stored != null) swap(new CrossRateMatrix(stored, hits, misses));
+	}
+
+	/** Runs {@code onChange} after each new matrix, on the thread that attached or refreshed. */
+	public void addListener(Runnable onChange) { listeners.add(onChange); }
+
+	public void removeListener(Runnable onChange) { listeners.remove(onChange); }
+
+	private void swap(CrossRateMatrix m) {
+		matrix = m;
+		for (Runnable l : listeners) l.run();
+	}
+
+	/**
+	 * Fetches what changed since the stored version, persists it and swaps in the new matrix.
+	 * Falls back to a full snapshot when the provider's delta does not line up with the store.
+	 * Returns whether the rates changed.
+	 */
+	public synchronized boolean refresh() throws IOException {
+		if (provider == null) throw new IllegalStateException("No rate provider attached");
+		long t0 = System.nanoTime();
+		boolean ok = false;
+		try {
+			RateUpdate update = provider.fetch(store.version());
+			if (update != null && !update.isFull() && update.baseVersion != store.version()) update = provider.fetch(RateUpdate.FULL);
+			boolean changed = update != null && update.version > store.version();
+			if (changed) {
+				store.apply(update);
+				swap(new CrossRateMatrix(store.snapshot(), hits, misses));
+			}
+			ok = true;
+			return changed;
+		} finally {
+			lastRefreshNanos = System.nanoTime() - t0;
+			if (ok) refreshes++;
+			else refreshFailures++;
+		}
+	}
+
+	/** Age of the current rates at {@code nowMillis}, or -1 for the bundled placeholders. */
+	public long stalenessMillis(long nowMillis) {
+		long ts = matrix.timestampMillis;
+		return ts <= 0 ? -1 : nowMillis - ts;
+	}
+
+	/** Wall time of the last {@link #refresh()}, successful or not, or -1 if none ran. */
+	public long lastRefreshNanos() { return lastRefreshNanos; }
+
+	public long refreshCount() { return refreshes; }
+
+	public long refreshFailureCount() { return refreshFailures; }
+
+	/** Fraction of cross-rate lookups served from an already computed row. */
+	public double hitRate() {
+		long h = hits.get();
+		long total = h + misses.get();
+		return total == 0 ? 0 : (double) h / total;
+	}
+}
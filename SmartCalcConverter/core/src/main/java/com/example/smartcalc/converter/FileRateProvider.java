@@ -0,0 +1,62 @@
+package com.example.smartcalc.converter;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * {@link RateProvider} over a directory of text files, the offline stand-in for a rates API.
+ * {@code snapshot.csv} holds the full set and {@code delta-<base>.csv} the changes on top of
+ * version {@code base}. Both start with {@code version,N} and {@code timestamp,millis} rows
+ * followed by {@code CODE,rate} rows; in a delta, {@code CODE,-} removes the currency.
+ */
+public final class FileRateProvider implements RateProvider {
+	private final File dir;
+
+	public FileRateProvider(File dir) {
+		this.dir = dir;
+	}
+
+	@Override
+	public RateUpdate fetch(long sinceVersion) throws IOException {
+		if (sinceVersion != RateUpdate.FULL) {
+			File delta = new File(dir, "delta-" + sinceVersion + ".csv");
+			if (delta.exists()) return read(delta, sinceVersion);
+		}
+		RateUpdate full = read(new File(dir, "snapshot.csv"), RateUpdate.FULL);
+		return full.version > sinceVersion ? full : null;
+	}
+
+	private static RateUpdate read(File file, long baseVersion) throws IOException {
+		long version = -1;
+		long timestamp = 0;
+		Map<String, Double> rates = new LinkedHashMap<>();
+		try (BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+			String line;
+			while ((line = in.readLine()) != null) {
+				line = line.trim();
+				if (line.isEmpty() || line.startsWith("#")) continue;
+				int comma = line.indexOf(',');
+				if (comma < 0) throw new IOException(file.getName() + ": bad row " + line);
+				String key = line.substring(0, comma).trim();
+				String value = line.substring(comma + 1).trim();
+				try {
+					if (key.equals("version")) version = Long.parseLong(value);
+					else if (key.equals("timestamp")) timestamp = Long.parseLong(value);
+					else rates.put(key, value.equals("-") ? Double.NaN : Double.parseDouble(value));
+				} catch (NumberFormatException e) {
+					throw new IOException(file.getName() + ": bad row " + line);
+				}
+			}
+		}
+		if (version < 0) throw new IOException(file.getName() + ": missing version");
+		return baseVersion == RateUpdate.FULL
+			? RateUpdate.full(version, timestamp, rates)
+			: RateUpdate.delta(baseVersion, version, timestamp, rates);
+	}
+}
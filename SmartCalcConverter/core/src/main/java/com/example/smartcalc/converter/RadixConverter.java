@@ -0,0 +1,222 @@
+package com.example.smartcalc.converter;
+
+import java.math.BigInteger;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Arbitrary-length integers in bases 2 to 36. Power-of-two bases are packed and unpacked bit by
+ * bit in linear time. Other bases split the number recursively around cached powers
+ * {@code radix^(k * 2^i)}, where {@code k} digits fit in a long, so the cost follows
+ * {@link BigInteger}'s subquadratic multiply and divide rather than digit-by-digit arithmetic.
+ *
+ * <p>Digits are written into a buffer owned by the instance and reused across calls, so an
+ * instance is not thread-safe; keep one per thread.
+ */
+public final class RadixConverter {
+	public static final int MIN_RADIX = 2;
+	public static final int MAX_RADIX = 36;
+
+	private static final char[] DIGITS = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ".toCharArray();
+	// CHUNK_DIGITS[r]: most base-r digits whose value always fits in a long; CHUNK_POWER[r] = r^that
+	private static final int[] CHUNK_DIGITS = new int[MAX_RADIX + 1];
+	private static final long[] CHUNK_POWER = new long[MAX_RADIX + 1];
+
+	static {
+		for (int r = MIN_RADIX; r <= MAX_RADIX; r++) {
+			long p = 1;
+			int k = 0;
+			while (p <= Long.MAX_VALUE / r) { p *= r; k++; }
+			CHUNK_DIGITS[r] = k;
+			CHUNK_POWER[r] = p;
+		}
+	}
+
+	private char[] buf = new char[128];
+	private int len;
+	private byte[] digits = new byte[128];
+	// indexed by radix, filled on first use
+	private final List<List<BigInteger>> powers = new ArrayList<>(Collections.<List<BigInteger>>nCopies(MAX_RADIX + 1, null));
+
+	/**
+	 * Parses {@code text} in {@code radix}: an optional sign, then digits in either case. Spaces
+	 * and underscores between digits are ignored, so grouped hex dumps parse as one number.
+	 */
+	public BigInteger parse(CharSequence text, int radix) {
+		checkRadix(radix);
+		int i = 0;
+		int end = text.length();
+		while (i < end && isSeparator(text.charAt(i))) i++;
+		boolean negative = false;
+		if (i < end && (text.charAt(i) == '-' || text.charAt(i) == '+')) negative = text.charAt(i++) == '-';
+		int n = 0;
+		for (; i < end; i++) {
+			char c = text.charAt(i);
+			if (isSeparator(c)) continue;
+			int d = digit(c);
+			if (d >= radix) throw new NumberFormatException("Bad digit '" + c + "' for radix " + radix);
+			if (n == digits.length) digits = Arrays.copyOf(digits, n * 2);
+			digits[n++] = (byte) d;
+		}
+		if (n == 0) throw new NumberFormatException("No digits");
+		BigInteger v = Integer.bitCount(radix) == 1 ? unpackBits(n, Integer.numberOfTrailingZeros(radix)) : combineChunks(n, radix);
+		return negative ? v.negate() : v;
+	}
+
+	/** {@code v} in {@code radix}, upper-case. The returned view is only valid until the next call. */
+	public CharSequence format(BigInteger v, int radix) {
+		checkRadix(radix);
+		len = 0;
+		if (v.signum() < 0) {
+			append('-');
+			v = v.negate();
+		}
+		if (v.bitLength() < 64) {
+			appendLong(v.longValue(), radix, 0);
+		} else if (Integer.bitCount(radix) == 1) {
+			packBits(v, Integer.numberOfTrailingZeros(radix));
+		} else {
+			List<BigInteger> p = powers(radix, v.bitLength());
+			appendRecursive(v, p, p.size() - 1, 0, radix);
+		}
+		return CharBuffer.wrap(buf, 0, len);
+	}
+
+	public String toString(BigInteger v, int radix) {
+		format(v, radix);
+		return new String(buf, 0, len);
+	}
+
+	// --- power-of-two radixes: each digit is exactly `bits` bits of the magnitude
+
+	private BigInteger unpackBits(int n, int bits) {
+		byte[] mag = new byte[(int) (((long) n * bits + 7) / 8)];
+		long bit = 0;
+		for (int i = n - 1; i >= 0; i--, bit += bits) {
+			int d = digits[i];
+			for (int b = 0; b < bits; b++) {
+				if ((d >> b & 1) != 0) {
+					long pos = bit + b;
+					mag[mag.length - 1 - (int) (pos >>> 3)] |= (byte) (1 << (pos & 7));
+				}
+			}
+		}
+		return new BigInteger(1, mag);
+	}
+
+	private void packBits(BigInteger v, int bits) {
+		byte[] mag = v.toByteArray();
+		int count = (v.bitLength() + bits - 1) / bits;
+		ensure(len + count);
+		int start = len;
+		len += count;
+		for (int i = 0; i < count; i++) {
+			long pos = (long) i * bits;
+			int d = 0;
+			for (int b = 0; b < bits; b++, pos++) {
+				int idx = mag.length - 1 - (int) (pos >>> 3);
+				if (idx >= 0 && (mag[idx] >> (pos & 7) & 1) != 0) d |= 1 << b;
+			}
+			buf[start + count - 1 - i] = DIGITS[d];
+		}
+	}
+
+	// --- other radixes: chunks of k digits combined (or split) in a balanced tree
+
+	private BigInteger combineChunks(int n, int radix) {
+		int k = CHUNK_DIGITS[radix];
+		// least significant chunk first; every chunk but the last holds exactly k digits
+		int count = (n + k - 1) / k;
+		BigInteger[] level = new BigInteger[count];
+		for (int c = 0; c < count; c++) {
+			int to = n - c * k;
+			int from = Math.max(0, to - k);
+			long x = 0;
+			for (int i = from; i < to; i++) x = x * radix + digits[i];
+			level[c] = BigInteger.valueOf(x);
+		}
+		BigInteger p = BigInteger.valueOf(CHUNK_POWER[radix]);
+		while (count > 1) {
+			int next = 0;
+			for (int c = 0; c < count; c += 2) {
+				level[next++] = c + 1 < count ? level[c + 1].multiply(p).add(level[c]) : level[c];
+			}
+			count = next;
+			if (count > 1) p = p.multiply(p);
+		}
+		return level[0];
+	}
+
+	// powers.get(i) = radix^(k * 2^i), up to the first whose square exceeds any number of `bitLength` bits
+	private List<BigInteger> powers(int radix, int bitLength) {
+		List<BigInteger> p = powers.get(radix);
+		if (p == null) {
+			p = new ArrayList<>();
+			p.add(BigInteger.valueOf(CHUNK_POWER[radix]));
+			powers.set(radix, p);
+		}
+		int top = 0;
+		// powers[top]^2 >= 2^(2 * (bitLength(powers[top]) - 1)) > every number of bitLength bits
+		while (2L * (p.get(top).bitLength() - 1) < bitLength) {
+			if (++top == p.size()) p.add(p.get(top - 1).pow(2));
+		}
+		return p.subList(0, top + 1);
+	}
+
+	// writes v < powers[level]^2, padded with leading zeros to `width` digits when width > 0
+	private void appendRecursive(BigInteger v, List<BigInteger> p, int level, int width, int radix) {
+		if (level < 0) {
+			appendLong(v.longValue(), radix, width);
+			return;
+		}
+		int lowDigits = CHUNK_DIGITS[radix] << level;
+		if (width == 0 && v.compareTo(p.get(level)) < 0) {
+			appendRecursive(v, p, level - 1, 0, radix);
+			return;
+		}
+		BigInteger[] qr = v.divideAndRemainder(p.get(level));
+		appendRecursive(qr[0], p, level - 1, width == 0 ? 0 : width - lowDigits, radix);
+		appendRecursive(qr[1], p, level - 1, lowDigits, radix);
+	}
+
+	private void appendLong(long x, int radix, int width) {
+		int n = 1;
+		for (long t = x / radix; t != 0; t /= radix) n++;
+		int total = Math.max(n, width);
+		ensure(len + total);
+		int pos = len + total;
+		for (int i = 0; i < n; i++) {
+			buf[--pos] = DIGITS[(int) (x % radix)];
+			x /= radix;
+		}
+		while (pos > len) buf[--pos] = '0';
+		len += total;
+	}
+
+	private void append(char c) {
+		ensure(len + 1);
+		buf[len++] = c;
+	}
+
+	private void ensure(int capacity) {
+		if (capacity > buf.length) buf = Arrays.copyOf(buf, Math.max(capacity, buf.length * 2));
+	}
+
+	private static int digit(char c) {
+		if (c >= '0' && c <= '9') return c - '0';
+		if (c >= 'a' && c <= 'z') return c - 'a' + 10;
+		if (c >= 'A' && c <= 'Z') return c - 'A' + 10;
+		return Integer.MAX_VALUE;
+	}
+
+	private static boolean isSeparator(char c) {
+		return c == ' ' || c == '_' || c == '\t' || c == '\n' || c == '\r';
+	}
+
+	private static void checkRadix(int radix) {
+		if (radix < MIN_RADIX || radix > MAX_RADIX) throw new IllegalArgumentException("Bad radix: " + radix);
+	}
+}
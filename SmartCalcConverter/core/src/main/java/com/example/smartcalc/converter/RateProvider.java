@@ -0,0 +1,13 @@
+package com.example.smartcalc.converter;
+
+import java.io.IOException;
+
+/** Source of currency rates, e.g. a rates API or, in tests, {@link FileRateProvider}. */
+public interface RateProvider {
+	/**
+	 * Rates newer than {@code sinceVersion}: a delta based on it when the provider has one, else a
+	 * full snapshot; null when nothing is newer. {@code sinceVersion} is {@link RateUpdate#FULL}
+	 * to ask for a full snapshot.
+	 */
+	RateUpdate fetch(long sinceVersion) throws IOException;
+}
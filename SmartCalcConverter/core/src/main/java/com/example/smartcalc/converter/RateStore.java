@@ -0,0 +1,105 @@
+package com.example.smartcalc.converter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The last known currency rates, persisted so the converter works offline. Full snapshots replace
+ * the stored set and deltas are merged into it; either way the file is rewritten to a temporary
+ * sibling and atomically renamed over the old one, so a crash leaves the previous version intact.
+ * Uses {@link File} rather than {@code java.nio.file}, which Android only has from API 26.
+ */
+public final class RateStore {
+	private static final int MAGIC = 0x53435258; // "SCRX"
+
+	private final File file;
+	private final Map<String, Double> rates = new LinkedHashMap<>();
+	private long version = RateUpdate.FULL;
+	private long timestampMillis;
+
+	/** Opens the store at {@code file}, loading it if it exists. */
+	public RateStore(File file) throws IOException {
+		this.file = file;
+		// a temporary file left by a crash before the rename is an unfinished save
+		tempFile().delete();
+		if (file.exists()) load();
+	}
+
+	/** Version of the stored rates, or {@link RateUpdate#FULL} if the store is empty. */
+	public synchronized long version() { return version; }
+
+	/** The stored rates as a full update, or null if the store is empty. */
+	public synchronized RateUpdate snapshot() {
+		return version == RateUpdate.FULL ? null : RateUpdate.full(version, timestampMillis, rates);
+	}
+
+	/**
+	 * Applies {@code update} and persists the result. Updates no newer than the store are ignored;
+	 * a delta must be based on exactly the stored version.
+	 */
+	public synchronized void apply(RateUpdate update) throws IOException {
+		if (update.version <= version) return;
+		if (!update.isFull() && update.baseVersion != version) {
+			throw new IllegalArgumentException("Delta based on version " + update.baseVersion + ", store has " + version);
+		}
+		Map<String, Double> next = update.isFull() ? new LinkedHashMap<>() : new LinkedHashMap<>(rates);
+		for (int i = 0; i < update.size(); i++) {
+			if (Double.isNaN(update.rate(i))) next.remove(update.code(i));
+			else next.put(update.code(i), update.rate(i));
+		}
+		save(update.version, update.timestampMillis, next);
+		rates.clear();
+		rates.putAll(next);
+		version = update.version;
+		timestampMillis = update.timestampMillis;
+	}
+
+	private void load() throws IOException {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			if (in.readInt() != MAGIC) throw new IOException("Bad rate store: " + file);
+			long v = in.readLong();
+			long ts = in.readLong();
+			int n = in.readInt();
+			for (int i = 0; i < n; i++) {
+				String code = in.readUTF();
+				rates.put(code, in.readDouble());
+			}
+			version = v;
+			timestampMillis = ts;
+		}
+	}
+
+	private void save(long v, long ts, Map<String, Double> values) throws IOException {
+		File tmp = tempFile();
+		try (FileOutputStream fos = new FileOutputStream(tmp)) {
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos));
+			out.writeInt(MAGIC);
+			out.writeLong(v);
+			out.writeLong(ts);
+			out.writeInt(values.size());
+			for (Map.Entry<String, Double> e : values.entrySet()) {
+				out.writeUTF(e.getKey());
+				out.writeDouble(e.getValue());
+			}
+			out.flush();
+			// on disk before the rename makes it the store
+			fos.getFD().sync();
+		}
+		if (!tmp.renameTo(file)) {
+			tmp.delete();
+			throw new IOException("Cannot replace " + file);
+		}
+	}
+
+	private File tempFile() {
+		return new File(file.getPath() + ".tmp");
+	}
+}
@@ -0,0 +1,52 @@
+package com.example.smartcalc.converter;
+
+import java.util.Map;
+
+/**
+ * A batch of currency rates from a {@link RateProvider}: either a full snapshot, or a delta that
+ * upserts rates on top of {@link #baseVersion}. Rates are in USD per unit of the currency, the same
+ * scale as the factors of the Currency category; a delta rate of NaN removes the currency.
+ */
+public final class RateUpdate {
+	public static final long FULL = -1;
+
+	public final long version;
+	/** Version this delta applies to, or {@link #FULL}. */
+	public final long baseVersion;
+	public final long timestampMillis;
+	private final String[] codes;
+	private final double[] rates;
+
+	private RateUpdate(long version, long baseVersion, long timestampMillis, Map<String, Double> rates) {
+		this.version = version;
+		this.baseVersion = baseVersion;
+		this.timestampMillis = timestampMillis;
+		this.codes = new String[rates.size()];
+		this.rates = new double[rates.size()];
+		int i = 0;
+		for (Map.Entry<String, Double> e : rates.entrySet()) {
+			if (e.getKey().isEmpty()) throw new IllegalArgumentException("Empty currency code");
+			double r = e.getValue();
+			if (!(r > 0) && !(baseVersion != FULL && Double.isNaN(r))) throw new IllegalArgumentException("Bad rate for " + e.getKey());
+			codes[i] = e.getKey();
+			this.rates[i++] = r;
+		}
+	}
+
+	public static RateUpdate full(long version, long timestampMillis, Map<String, Double> rates) {
+		return new RateUpdate(version, FULL, timestampMillis, rates);
+	}
+
+	public static RateUpdate delta(long baseVersion, long version, long timestampMillis, Map<String, Double> rates) {
+		if (baseVersion < 0 || version <= baseVersion) throw new IllegalArgumentException("Bad delta versions");
+		return new RateUpdate(version, baseVersion, timestampMillis, rates);
+	}
+
+	public boolean isFull() { return baseVersion == FULL; }
+
+	public int size() { return codes.length; }
+
+	public String code(int i) { return codes[i]; }
+
+	public double rate(int i) { return rates[i]; }
+}
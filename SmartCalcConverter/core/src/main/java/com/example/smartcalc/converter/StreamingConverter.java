@@ -0,0 +1,342 @@
+package com.example.smartcalc.converter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Converts every number in a delimited text file (CSV, TSV or one value per line) from one unit to
+ * another, copying all other bytes through unchanged. Input is memory-mapped a window at a time and
+ * numbers are parsed straight from the mapped bytes; output goes through one reused direct buffer,
+ * so heap use is constant no matter how large the file is. A field cut by the end of a window is
+ * carried into the next one, and converted values are written to {@value #SIGNIFICANT_DIGITS}
+ * significant digits whatever their magnitude. Instances are not thread-safe.
+ */
+public final class StreamingConverter {
+	private static final int WINDOW = 16 << 20;
+	private static final int OUT_CAPACITY = 1 << 20;
+	// longest field that may still be a number once it spans windows; anything longer fails the conversion
+	private static final int MAX_FIELD = 1 << 20;
+	// longest text writeDouble can produce, so a flush is never needed in the middle of a value
+	private static final int MAX_NUMBER_BYTES = 32;
+	private static final int SIGNIFICANT_DIGITS = 12;
+	private static final byte[] NAN = { 'N', 'a', 'N' };
+	private static final byte[] INFINITY = { 'I', 'n', 'f', 'i', 'n', 'i', 't', 'y' };
+	private static final double[] POW10 = {
+		1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+		1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+	};
+
+	private final double factor;
+	private final double offset;
+	private final int windowSize;
+	private final ByteBuffer out = ByteBuffer.allocateDirect(OUT_CAPACITY);
+	private final byte[] digits = new byte[SIGNIFICANT_DIGITS];
+	// text of a literal Double.parseDouble has to read; grown for the rare longer one
+	private byte[] fallback = new byte[64];
+	private boolean parsed;
+	// start of a field the previous window ended in; empty unless it could still be a number
+	private byte[] carry = new byte[64];
+	private int carryLen;
+	// the field the previous window ended in is not a number and has been copied through already
+	private boolean copyingField;
+	// bytes flushed to the output so far
+	private long written;
+
+	public StreamingConverter(UnitCategory category, String fromUnit, String toUnit) {
+		this(category, fromUnit, toUnit, WINDOW);
+	}
+
+	// windowSize is the mapped length, small in tests so fields cross windows
+	StreamingConverter(UnitCategory category, String fromUnit, String toUnit, int windowSize) {
+		if (!category.isAffine()) throw new IllegalArgumentException(category.name + " is not an affine category");
+		int from = category.unitId(fromUnit);
+		int to = category.unitId(toUnit);
+		if (from < 0) throw new IllegalArgumentException("Unknown unit: " + fromUnit);
+		if (to < 0) throw new IllegalArgumentException("Unknown unit: " + toUnit);
+		this.factor = category.factor(from, to);
+		this.offset = category.offset(from, to);
+		this.windowSize = windowSize;
+	}
+
+	public Stats convert(Path input, Path output) throws IOException {
+		long start = System.nanoTime();
+		long values = 0;
+		written = 0;
+		out.clear();
+		carryLen = 0;
+		copyingField = false;
+		try (FileChannel in = FileChannel.open(input, StandardOpenOption.READ);
+			 FileChannel sink = FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			long size = in.size();
+			long pos = 0;
+			while (pos < size) {
+				int len = (int) Math.min(windowSize, size - pos);
+				MappedByteBuffer window = in.map(FileChannel.MapMode.READ_ONLY, pos, len);
+				int fieldStart = 0;
+				for (int i = 0; i < len; i++) {
+					byte b = window.get(i);
+					if (!isDelimiter(b)) continue;
+					if (field(sink, window, fieldStart, i)) values++;
+					put(sink, b);
+					fieldStart = i + 1;
+				}
+				pos += len;
+				if (pos == size) {
+					if (field(sink, window, fieldStart, len)) values++;
+				} else {
+					carry(sink, window, fieldStart, len);
+				}
+			}
+			flush(sink);
+			return new Stats(size, written, values, System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * Writes the field {@code buf[start, end)}, converted if it is a number, joined to what the
+	 * previous window carried; true if it was converted.
+	 */
+	private boolean field(FileChannel sink, ByteBuffer buf, int start, int end) throws IOException {
+		if (copyingField) {
+			copyingField = false;
+			copy(sink, buf, start, end);
+			return false;
+		}
+		if (carryLen > 0) {
+			append(buf, start, end);
+			buf = ByteBuffer.wrap(carry, 0, carryLen);
+			start = 0;
+			end = carryLen;
+			carryLen = 0;
+		}
+		if (end == start) return false;
+		double v = parse(buf, start, end);
+		if (!parsed) {
+			copy(sink, buf, start, end);
+			return false;
+		}
+		ensure(sink, MAX_NUMBER_BYTES);
+		writeDouble(offset == 0 ? v * factor : v * factor + offset);
+		return true;
+	}
+
+	/**
+	 * Keeps {@code buf[start, end)}, the start of a field the next window finishes. Text that cannot
+	 * be part of a number is copied through at once, so only number-like fields are held on the heap.
+	 */
+	private void carry(FileChannel sink, ByteBuffer buf, int start, int end) throws IOException {
+		if (copyingField) {
+			copy(sink, buf, start, end);
+			return;
+		}
+		for (int i = start; i < end; i++) {
+			if (!isNumberByte(buf.get(i))) {
+				copy(sink, ByteBuffer.wrap(carry, 0, carryLen), 0, carryLen);
+				carryLen = 0;
+				copy(sink, buf, start, end);
+				copyingField = true;
+				return;
+			}
+		}
+		append(buf, start, end);
+	}
+
+	private void append(ByteBuffer buf, int start, int end) throws IOException {
+		int len = end - start;
+		if (carryLen + len > MAX_FIELD) throw new IOException("Number longer than " + MAX_FIELD + " bytes");
+		if (carryLen + len > carry.length) carry = Arrays.copyOf(carry, Math.max(carryLen + len, 2 * carry.length));
+		for (int i = start; i < end; i++) carry[carryLen++] = buf.get(i);
+	}
+
+	private void copy(FileChannel sink, ByteBuffer buf, int start, int end) throws IOException {
+		for (int i = start; i < end; i++) put(sink, buf.get(i));
+	}
+
+	private static boolean isNumberByte(byte b) {
+		return (b >= '0' && b <= '9') || b == '.' || b == '+' || b == '-' || b == 'e' || b == 'E';
+	}
+
+	private static boolean isDelimiter(byte b) {
+		return b == ',' || b == ';' || b == '\t' || b == ' ' || b == '\n' || b == '\r';
+	}
+
+	/**
+	 * Parses {@code [start, end)} as a decimal or scientific literal, setting {@link #parsed}. Up to
+	 * 19 significant digits with a small exponent are converted exactly with one multiply or divide;
+	 * anything else falls back to {@link Double#parseDouble}.
+	 */
+	private double parse(ByteBuffer buf, int start, int end) {
+		parsed = false;
+		int i = start;
+		boolean negative = false;
+		byte c = buf.get(i);
+		if (c == '-' || c == '+') {
+			negative = c == '-';
+			i++;
+		}
+		long mantissa = 0;
+		int nDigits = 0;
+		int exp10 = 0;
+		boolean truncated = false;
+		boolean dot = false;
+		boolean anyDigit = false;
+		for (; i < end; i++) {
+			c = buf.get(i);
+			if (c >= '0' && c <= '9') {
+				anyDigit = true;
+				if (nDigits < 19) {
+					mantissa = mantissa * 10 + (c - '0');
+					if (mantissa != 0) nDigits++;
+					if (dot) exp10--;
+				} else {
+					truncated = true;
+					if (!dot) exp10++;
+				}
+			} else if (c == '.' && !dot) {
+				dot = true;
+			} else {
+				break;
+			}
+		}
+		if (!anyDigit) return 0;
+		if (i < end && (c == 'e' || c == 'E')) {
+			i++;
+			boolean expNegative = false;
+			if (i < end && (buf.get(i) == '-' || buf.get(i) == '+')) expNegative = buf.get(i++) == '-';
+			int expStart = i;
+			int e = 0;
+			for (; i < end && buf.get(i) >= '0' && buf.get(i) <= '9'; i++) {
+				if (e < 10_000) e = e * 10 + (buf.get(i) - '0');
+			}
+			if (i == expStart) return 0;
+			exp10 += expNegative ? -e : e;
+		}
+		if (i != end) return 0;
+		parsed = true;
+		if (!truncated && mantissa < (1L << 53) && exp10 >= -22 && exp10 <= 22) {
+			double v = exp10 >= 0 ? mantissa * POW10[exp10] : mantissa / POW10[-exp10];
+			return negative ? -v : v;
+		}
+		int len = end - start;
+		if (len > fallback.length) fallback = new byte[Math.max(len, 2 * fallback.length)];
+		for (int j = 0; j < len; j++) fallback[j] = buf.get(start + j);
+		return Double.parseDouble(new String(fallback, 0, len, StandardCharsets.ISO_8859_1));
+	}
+
+	/**
+	 * Writes {@code v} rounded to {@value #SIGNIFICANT_DIGITS} significant digits without trailing
+	 * zeros: plain below 10^15 and from 10^-4, scientific ({@code 3.048E-6}) outside that.
+	 */
+	private void writeDouble(double v) {
+		if (v != v) {
+			out.put(NAN);
+			return;
+		}
+		if (v < 0) {
+			out.put((byte) '-');
+			v = -v;
+		}
+		if (v == 0) {
+			out.put((byte) '0');
+			return;
+		}
+		if (Double.isInfinite(v)) {
+			out.put(INFINITY);
+			return;
+		}
+		int exp = (int) Math.floor(Math.log10(v));
+		long m = Math.round(scale(v, SIGNIFICANT_DIGITS - 1 - exp));
+		// log10 can be one off either way next to a power of ten
+		if (m < (long) POW10[SIGNIFICANT_DIGITS - 1]) {
+			exp--;
+			m = Math.round(scale(v, SIGNIFICANT_DIGITS - 1 - exp));
+		}
+		if (m >= (long) POW10[SIGNIFICANT_DIGITS]) {
+			m /= 10;
+			exp++;
+		}
+		for (int k = SIGNIFICANT_DIGITS - 1; k >= 0; k--) {
+			digits[k] = (byte) ('0' + m % 10);
+			m /= 10;
+		}
+		int last = SIGNIFICANT_DIGITS - 1;
+		while (last > 0 && digits[last] == '0') last--;
+		if (exp < -4 || exp >= 15) {
+			out.put(digits[0]);
+			if (last > 0) out.put((byte) '.').put(digits, 1, last);
+			out.put((byte) 'E');
+			if (exp < 0) {
+				out.put((byte) '-');
+				exp = -exp;
+			}
+			if (exp >= 100) out.put((byte) ('0' + exp / 100));
+			if (exp >= 10) out.put((byte) ('0' + exp / 10 % 10));
+			out.put((byte) ('0' + exp % 10));
+			return;
+		}
+		int intDigits = exp + 1;
+		if (intDigits <= 0) {
+			out.put((byte) '0').put((byte) '.');
+			for (int k = intDigits; k < 0; k++) out.put((byte) '0');
+			out.put(digits, 0, last + 1);
+		} else if (last < intDigits) {
+			for (int k = 0; k < intDigits; k++) out.put(k < SIGNIFICANT_DIGITS ? digits[k] : (byte) '0');
+		} else {
+			out.put(digits, 0, intDigits).put((byte) '.').put(digits, intDigits, last + 1 - intDigits);
+		}
+	}
+
+	// v * 10^shift, in steps the table covers exactly so subnormals and 1e308 neither overflow nor lose digits
+	private static double scale(double v, int shift) {
+		for (; shift > 22; shift -= 22) v *= POW10[22];
+		for (; shift < -22; shift += 22) v /= POW10[22];
+		return shift >= 0 ? v * POW10[shift] : v / POW10[-shift];
+	}
+
+	private void put(FileChannel sink, byte b) throws IOException {
+		ensure(sink, 1);
+		out.put(b);
+	}
+
+	private void ensure(FileChannel sink, int bytes) throws IOException {
+		if (out.remaining() < bytes) flush(sink);
+	}
+
+	private void flush(FileChannel sink) throws IOException {
+		out.flip();
+		written += out.remaining();
+		while (out.hasRemaining()) sink.write(out);
+		out.clear();
+	}
+
+	public static final class Stats {
+		public final long bytesRead;
+		public final long bytesWritten;
+		public final long values;
+		public final long elapsedNanos;
+
+		Stats(long bytesRead, long bytesWritten, long values, long elapsedNanos) {
+			this.bytesRead = bytesRead;
+			this.bytesWritten = bytesWritten;
+			this.values = values;
+			this.elapsedNanos = elapsedNanos;
+		}
+
+		/** Input throughput in megabytes (10^6 bytes) per second. */
+		public double megabytesPerSecond() {
+			return elapsedNanos == 0 ? 0 : bytesRead / 1e6 / (elapsedNanos / 1e9);
+		}
+
+		@Override
+		public String toString() {
+			return String.format(java.util.Locale.US, "%d values, %d bytes in %.1f ms (%.1f MB/s)",
+				values, bytesRead, elapsedNanos / 1e6, megabytesPerSecond());
+		}
+	}
+}
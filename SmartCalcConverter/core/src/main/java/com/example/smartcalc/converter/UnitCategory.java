@@ -0,0 +1,308 @@
+package com.example.smartcalc.converter;
+
+import com.example.smartcalc.metrics.EvaluationMetrics;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A set of units that convert into one another. Numeric categories are compiled by
+ * {@link #freeze()} from each unit's {@link UnitConversion} into a dispatch table, so converting
+ * {@code v} from unit {@code f} to unit {@code k} is {@code v * scale[f][k] + offset[f][k]} for
+ * every numeric category alike. BMI, radix and currency categories have their own paths.
+ */
+public class UnitCategory {
+	public enum Kind {
+		/** Units related by {@link UnitConversion}s: lengths, temperatures, GST, ... */
+		NUMERIC,
+		/** The value itself plus a textual classification of it. */
+		BMI,
+		/** Integer in one base shown in every base; input is text, not a number. */
+		RADIX,
+		/** Rates from {@link CurrencyRates}, which can change after the category is built. */
+		CURRENCY
+	}
+
+	// digit buffers for radix categories, reused by each thread that converts through them; not
+	// ThreadLocal.withInitial, which Android only has from API 26
+	private static final ThreadLocal<RadixConverter> RADIX = new ThreadLocal<RadixConverter>() {
+		@Override
+		protected RadixConverter initialValue() { return new RadixConverter(); }
+	};
+
+	public final String name;
+	public final Kind kind;
+	private final Map<String, Double> unitTable = new LinkedHashMap<>();
+	private final Map<String, UnitConversion> conversions = new LinkedHashMap<>();
+	/** Unit name &rarr; scale factor, in display order; read-only, populated through {@link #addUnit}. */
+	public final Map<String, Double> units = Collections.unmodifiableMap(unitTable);
+
+	// index-based form built by freeze()
+	private String[] unitNames;
+	private List<String> unitNameList;
+	private Map<String, Integer> unitIds;
+	// numeric categories: scales[from][to], offsets[from][to] (null when all zero), or, when some
+	// unit is not affine, the per-unit functions to go through the base unit with instead
+	private double[][] scales;
+	private double[][] offsets;
+	private UnitConversion[] functions;
+	// currency categories convert through the live cross-rate matrix instead of their table factors
+	private CurrencyRates rates;
+	private final AtomicLong conversionCount;
+
+	public UnitCategory(String name) {
+		this(name, Kind.NUMERIC);
+	}
+
+	public UnitCategory(String name, Kind kind) {
+		this.name = name;
+		this.kind = kind;
+		this.conversionCount = EvaluationMetrics.conversionCounter(name);
+	}
+
+	/** Adds a unit worth {@code factor} base units. */
+	public void addUnit(String unitName, double factor) {
+		addUnit(unitName, UnitConversion.linear(factor));
+	}
+
+	public void addUnit(String unitName, UnitConversion conversion) {
+		if (unitNames != null) throw new IllegalStateException(name + " is frozen");
+		conversions.put(unitName, conversion);
+		unitTable.put(unitName, conversion.factor);
+	}
+
+	/**
+	 * Assigns integer unit ids and, for numeric categories, composes every from&rarr;to pair of
+	 * unit conversions into the dispatch table. Call once after the units are added; the category
+	 * is read-only afterwards and safe to share between threads.
+	 */
+	public void freeze() {
+		if (unitNames != null) return;
+		int n = conversions.size();
+		String[] names = new String[n];
+		UnitConversion[] conv = new UnitConversion[n];
+		Map<String, Integer> ids = new LinkedHashMap<>();
+		boolean affine = true;
+		int i = 0;
+		for (Map.Entry<String, UnitConversion> e : conversions.entrySet()) {
+			names[i] = e.getKey();
+			conv[i] = e.getValue();
+			affine &= conv[i].isAffine();
+			ids.put(e.getKey(), i);
+			i++;
+		}
+		if (kind == Kind.NUMERIC) {
+			if (affine) compose(conv);
+			else functions = conv;
+		}
+		unitNameList = Collections.unmodifiableList(Arrays.asList(names));
+		unitIds = ids;
+		unitNames = names;
+	}
+
+	// from f into base is x * a_f + b_f; out of base into k is (y - b_k) / a_k, or y * factor_k for
+	// fan-out units. Dividing rather than multiplying by 1 / a_k keeps pure scalings bit-exact.
+	private void compose(UnitConversion[] conv) {
+		int n = conv.length;
+		double[][] m = new double[n][n];
+		double[][] o = new double[n][n];
+		boolean anyOffset = false;
+		for (int from = 0; from < n; from++) {
+			UnitConversion f = conv[from];
+			for (int to = 0; to < n; to++) {
+				UnitConversion t = conv[to];
+				if (t.fanOut) {
+					m[from][to] = f.scale * t.factor;
+					o[from][to] = f.offset * t.factor;
+				} else {
+					m[from][to] = f.scale / t.scale;
+					o[from][to] = (f.offset - t.offset) / t.scale;
+				}
+				anyOffset |= o[from][to] != 0;
+			}
+		}
+		scales = m;
+		offsets = anyOffset ? o : null;
+	}
+
+	void bindRates(CurrencyRates rates) {
+		if (unitNames != null) throw new IllegalStateException(name + " is frozen");
+		this.rates = rates;
+	}
+
+	/** The live rates of a currency category, or null for any other category. */
+	public CurrencyRates getRates() { return rates; }
+
+	/**
+	 * Names of the units to offer, in display order: {@link #units}' keys, or for a currency
+	 * category the currencies of the current rates, which can change on refresh.
+	 */
+	public List<String> listUnits() {
+		return rates != null ? rates.matrix().codes() : unitNameList;
+	}
+
+	// a currency category's units are those of the current rates, so ids are only valid until a refresh
+	public int unitCount() { return rates != null ? rates.matrix().size() : unitNames.length; }
+
+	public String unitName(int id) { return rates != null ? rates.matrix().code(id) : unitNames[id]; }
+
+	/** Id of {@code name} in this category, or -1 if it is not one of its units. */
+	public int unitId(String name) {
+		if (rates != null) return rates.matrix().id(name);
+		Integer id = unitIds.get(name);
+		return id == null ? -1 : id;
+	}
+
+	/** Whether every conversion is {@code v * scale + offset}, i.e. {@link #factor} and {@link #offset} apply. */
+	public boolean isAffine() { return scales != null; }
+
+	/** Whether every conversion is a multiplication by a constant. */
+	public boolean hasFactorMatrix() { return scales != null && offsets == null; }
+
+	public double factor(int fromId, int toId) {
+		if (scales == null) throw new IllegalStateException(name + " is not affine");
+		return scales[fromId][toId];
+	}
+
+	public double offset(int fromId, int toId) {
+		if (scales == null) throw new IllegalStateException(name + " is not affine");
+		return offsets == null ? 0 : offsets[fromId][toId];
+	}
+
+	/**
+	 * Writes {@code value} in unit {@code fromId} converted to every unit into {@code out}, indexed
+	 * by unit id: one row of the dispatch table, with no lookups, boxing or allocation.
+	 */
+	public void convertAll(int fromId, double value, double[] out) {
+		if (scales != null) {
+			double[] row = scales[fromId];
+			if (offsets == null) {
+				for (int to = 0; to < row.length; to++) out[to] = value * row[to];
+			} else {
+				double[] off = offsets[fromId];
+				for (int to = 0; to < row.length; to++) out[to] = value * row[to] + off[to];
+			}
+		} else if (functions != null) {
+			double base = functions[fromId].toBase(value);
+			for (int to = 0; to < functions.length; to++) out[to] = functions[to].fromBase(base);
+		} else {
+			throw new IllegalStateException(name + " is not a numeric category");
+		}
+	}
+
+	/**
+	 * Converts user-typed {@code text} from {@code fromName} into every unit of this category.
+	 * Unparseable numeric input counts as zero; radix categories parse {@code text}, of any length,
+	 * in the base of {@code fromName} and yield a single empty result when it is not a valid number.
+	 */
+	public List<ConversionResult> convert(String fromName, String text) {
+		long t = EvaluationMetrics.start();
+		List<ConversionResult> results;
+		if (kind == Kind.RADIX) {
+			results = convertRadix(fromName, text);
+		} else {
+			double input = 0.0;
+			try { input = Double.parseDouble(text); } catch (Exception ignored) {}
+			results = results(fromName, input);
+		}
+		record(t);
+		return results;
+	}
+
+	/** Converts {@code value} from {@code fromName} into every unit of this category. */
+	public List<ConversionResult> convert(String fromName, double value) {
+		long t = EvaluationMetrics.start();
+		List<ConversionResult> results = results(fromName, value);
+		record(t);
+		return results;
+	}
+
+	private void record(long start) {
+		EvaluationMetrics.conversion(conversionCount);
+		EvaluationMetrics.stop(EvaluationMetrics.Stage.CONVERT, start);
+	}
+
+	private List<ConversionResult> convertRadix(String fromName, String text) {
+		BigInteger v;
+		try {
+			v = RADIX.get().parse(text, radixOf(fromName));
+		} catch (NumberFormatException e) {
+			List<ConversionResult> results = new ArrayList<>();
+			results.add(new ConversionResult("", ""));
+			return results;
+		}
+		return radixResults(v);
+	}
+
+	private List<ConversionResult> results(String fromName, double value) {
+		List<ConversionResult> results = new ArrayList<>();
+		switch (kind) {
+			case RADIX:
+				return radixResults(Double.isFinite(value) ? new BigDecimal(value).toBigInteger() : BigInteger.ZERO);
+			case BMI:
+				results.add(new ConversionResult("BMI", value));
+				results.add(new ConversionResult("Category", bmiCategory(value)));
+				return results;
+			case CURRENCY: {
+				CrossRateMatrix m = rates.matrix();
+				int from = m.id(fromName);
+				// withdrawn by a refresh the caller has not caught up with; CurrencyRates' listeners tell it
+				if (from < 0) return results;
+				double[] out = new double[m.size()];
+				m.convertAll(from, value, out);
+				for (int to = 0; to < out.length; to++) results.add(new ConversionResult(m.code(to), out[to]));
+				return results;
+			}
+			default: {
+				int from = unitId(fromName);
+				if (from < 0) throw new IllegalArgumentException("Unknown unit: " + fromName);
+				double[] out = new double[unitNames.length];
+				convertAll(from, value, out);
+				for (int to = 0; to < out.length; to++) results.add(new ConversionResult(unitNames[to], out[to]));
+				return results;
+			}
+		}
+	}
+
+	private static String bmiCategory(double bmi) {
+		if (bmi < 18.5) return "Underweight";
+		if (bmi < 25) return "Normal";
+		if (bmi < 30) return "Overweight";
+		return "Obese";
+	}
+
+	private static int radixOf(String name) {
+		if (name.startsWith("Base ")) return Integer.parseInt(name.substring(5).trim());
+		return name.startsWith("Binary") ? 2 : name.startsWith("Octal") ? 8 : name.startsWith("Hex") ? 16 : 10;
+	}
+
+	private List<ConversionResult> radixResults(BigInteger v) {
+		RadixConverter rc = RADIX.get();
+		List<ConversionResult> results = new ArrayList<>(unitNames.length);
+		for (String unit : unitNames) results.add(new ConversionResult(unit, rc.toString(v, radixOf(unit))));
+		return results;
+	}
+
+	public String convertRadixToAll(String fromName, String text) {
+		RadixConverter rc = RADIX.get();
+		BigInteger v;
+		try {
+			v = rc.parse(text, radixOf(fromName));
+		} catch (NumberFormatException e) {
+			return "";
+		}
+		StringBuilder sb = new StringBuilder();
+		sb.append("bin:").append(rc.format(v, 2));
+		sb.append(" | oct:").append(rc.format(v, 8));
+		sb.append(" | dec:").append(rc.format(v, 10));
+		sb.append(" | hex:").append(rc.format(v, 16));
+		return sb.toString();
+	}
+}
@@ -0,0 +1,60 @@
+package com.example.smartcalc.converter;
+
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * How one unit relates to its category's base unit: a map into the base and one back out of it.
+ * Both are affine for every unit shipped today, which lets a category compose any pair into a
+ * single scale and offset; arbitrary functions are supported for units that are not, at the cost
+ * of two calls per conversion.
+ */
+public final class UnitConversion {
+	/** {@code base = x * scale + offset}; for fan-out units the input is already the base. */
+	final double scale;
+	final double offset;
+	/** The factor {@link UnitCategory#units} reports for this unit. */
+	final double factor;
+	final boolean fanOut;
+	private final DoubleUnaryOperator toBase;
+	private final DoubleUnaryOperator fromBase;
+
+	private UnitConversion(double factor, double scale, double offset, boolean fanOut, DoubleUnaryOperator toBase, DoubleUnaryOperator fromBase) {
+		this.factor = factor;
+		this.scale = scale;
+		this.offset = offset;
+		this.fanOut = fanOut;
+		this.toBase = toBase;
+		this.fromBase = fromBase;
+	}
+
+	/** One of this unit is {@code factor} base units. */
+	public static UnitConversion linear(double factor) {
+		return new UnitConversion(factor, factor, 0, false, null, null);
+	}
+
+	/** {@code base = x * scale + offset}, e.g. Kelvin to Celsius is (1, -273.15). */
+	public static UnitConversion affine(double scale, double offset) {
+		return new UnitConversion(scale, scale, offset, false, null, null);
+	}
+
+	/**
+	 * A unit derived from the input rather than converted from it: input in any unit is taken as
+	 * the base amount and this unit shows it times {@code factor} (GST, discounts, interest).
+	 */
+	public static UnitConversion fanOut(double factor) {
+		return new UnitConversion(factor, 1, 0, true, null, null);
+	}
+
+	public static UnitConversion of(DoubleUnaryOperator toBase, DoubleUnaryOperator fromBase) {
+		return new UnitConversion(Double.NaN, Double.NaN, Double.NaN, false, toBase, fromBase);
+	}
+
+	public boolean isAffine() { return toBase == null; }
+
+	public double toBase(double x) { return toBase == null ? x * scale + offset : toBase.applyAsDouble(x); }
+
+	public double fromBase(double y) {
+		if (fromBase != null) return fromBase.applyAsDouble(y);
+		return fanOut ? y * factor : (y - offset) / scale;
+	}
+}
@@ -0,0 +1,148 @@
+package com.example.smartcalc.converter;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Read-only view over the binary unit table written by {@link UnitTableCompiler}. Nothing is
+ * parsed up front: every accessor reads a fixed offset of the underlying buffer, so loading costs
+ * one read (or one {@code mmap}) plus a header check, and names are decoded only when asked for.
+ *
+ * <p>Layout, big-endian, sections 8-byte aligned:
+ * <pre>
+ * header     int magic "SCUT", short format, short categories, int units, int strings,
+ *            int dataVersion, int unitsOff, int factorsOff, int offsetsOff, int stringOffsOff,
+ *            int stringDataOff
+ * categories per category: short name, byte kind, byte 0, short firstUnit, short unitCount
+ * units      per unit: short name
+ * factors    per unit: double factor
+ * offsets    per unit: double offset, zero except for affine units
+ * strings    (strings + 1) int offsets into the UTF-8 data, then the data; each name stored once
+ * </pre>
+ */
+public final class UnitTable {
+	static final int MAGIC = 0x53435554;
+	static final int FORMAT = 2;
+	static final int HEADER_SIZE = 40;
+	static final int CATEGORY_SIZE = 8;
+
+	/** Unit is {@code factor} base units. */
+	public static final int LINEAR = 0;
+	/** Base value is {@code x * factor + offset}. */
+	public static final int AFFINE = 1;
+	/** Input is the base amount and each unit shows it times {@code factor}. */
+	public static final int FAN_OUT = 2;
+	public static final int BMI = 3;
+	public static final int RADIX = 4;
+	public static final int CURRENCY = 5;
+
+	/** Classpath location of the table bundled with core. */
+	public static final String RESOURCE = "/com/example/smartcalc/converter/units.bin";
+
+	private final ByteBuffer buf;
+	private final int categoryCount;
+	private final int unitCount;
+	private final int stringCount;
+	private final int dataVersion;
+	private final int unitsOff;
+	private final int factorsOff;
+	private final int offsetsOff;
+	private final int stringOffsOff;
+	private final int stringDataOff;
+
+	/** Wraps {@code buf} (positioned at the table's first byte) after validating its header. */
+	public UnitTable(ByteBuffer buf) {
+		this.buf = buf.slice();
+		if (this.buf.remaining() < HEADER_SIZE || this.buf.getInt(0) != MAGIC) throw new IllegalArgumentException("Bad unit table");
+		int format = this.buf.getShort(4);
+		if (format != FORMAT) throw new IllegalArgumentException("Unsupported unit table format: " + format);
+		categoryCount = this.buf.getShort(6);
+		unitCount = this.buf.getInt(8);
+		stringCount = this.buf.getInt(12);
+		dataVersion = this.buf.getInt(16);
+		unitsOff = this.buf.getInt(20);
+		factorsOff = this.buf.getInt(24);
+		offsetsOff = this.buf.getInt(28);
+		stringOffsOff = this.buf.getInt(32);
+		stringDataOff = this.buf.getInt(36);
+		if (stringDataOff > this.buf.limit() || offsetsOff + 8L * unitCount > this.buf.limit()) throw new IllegalArgumentException("Bad unit table");
+	}
+
+	/** The table bundled with core, read from the classpath. */
+	public static UnitTable load() {
+		try (InputStream in = UnitTable.class.getResourceAsStream(RESOURCE)) {
+			if (in == null) throw new IllegalStateException("Missing unit table: " + RESOURCE);
+			return new UnitTable(ByteBuffer.wrap(readAll(in)));
+		} catch (IOException e) {
+			throw new IllegalStateException("Cannot read unit table", e);
+		}
+	}
+
+	/** Memory-maps a table file, e.g. one extracted to app storage or downloaded as an update. */
+	public static UnitTable map(File file) throws IOException {
+		// RandomAccessFile rather than FileChannel.open(Path), which Android only has from API 26
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel ch = raf.getChannel()) {
+			return new UnitTable(ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size()));
+		}
+	}
+
+	// InputStream.readAllBytes is API 33 on Android
+	private static byte[] readAll(InputStream in) throws IOException {
+		byte[] b = new byte[Math.max(in.available(), 8192)];
+		int n = 0;
+		for (int r; (r = in.read(b, n, b.length - n)) > 0; ) {
+			n += r;
+			if (n == b.length) b = Arrays.copyOf(b, 2 * b.length);
+		}
+		return n == b.length ? b : Arrays.copyOf(b, n);
+	}
+
+	public int dataVersion() { return dataVersion; }
+
+	public int categoryCount() { return categoryCount; }
+
+	public int unitCount() { return unitCount; }
+
+	public String categoryName(int category) { return string(buf.getShort(categoryOff(category))); }
+
+	/** One of {@link #LINEAR}, {@link #AFFINE}, ... {@link #CURRENCY}. */
+	public int kind(int category) { return buf.get(categoryOff(category) + 2); }
+
+	/** Index of the category's first unit; its units are contiguous. */
+	public int firstUnit(int category) { return buf.getShort(categoryOff(category) + 4); }
+
+	public int unitCount(int category) { return buf.getShort(categoryOff(category) + 6); }
+
+	public String unitName(int unit) { return string(buf.getShort(unitsOff + 2 * unit)); }
+
+	public double factor(int unit) { return buf.getDouble(factorsOff + 8 * unit); }
+
+	public double offset(int unit) { return buf.getDouble(offsetsOff + 8 * unit); }
+
+	/** Index of the category called {@code name}, or -1. */
+	public int findCategory(String name) {
+		for (int i = 0; i < categoryCount; i++) if (categoryName(i).equals(name)) return i;
+		return -1;
+	}
+
+	private int categoryOff(int category) {
+		if (category < 0 || category >= categoryCount) throw new IndexOutOfBoundsException("category " + category);
+		return HEADER_SIZE + CATEGORY_SIZE * category;
+	}
+
+	private String string(int id) {
+		if (id < 0 || id >= stringCount) throw new IllegalArgumentException("Bad string id: " + id);
+		int from = stringDataOff + buf.getInt(stringOffsOff + 4 * id);
+		int to = stringDataOff + buf.getInt(stringOffsOff + 4 * (id + 1));
+		if (buf.hasArray()) return new String(buf.array(), buf.arrayOffset() + from, to - from, StandardCharsets.UTF_8);
+		byte[] bytes = new byte[to - from];
+		buf.duplicate().position(from).get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,138 @@
+package com.example.smartcalc.converter;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Build step that turns {@code units.csv} into the binary form read by {@link UnitTable}.
+ * Run by the {@code compileUnitTable} Gradle task: {@code UnitTableCompiler <units.csv> <units.bin>}.
+ */
+public final class UnitTableCompiler {
+	private static final String[] KINDS = { "linear", "affine", "fanout", "bmi", "radix", "currency" };
+
+	private UnitTableCompiler() {}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length != 2) throw new IllegalArgumentException("Usage: UnitTableCompiler <units.csv> <units.bin>");
+		byte[] table;
+		try (BufferedReader in = Files.newBufferedReader(Paths.get(args[0]), StandardCharsets.UTF_8)) {
+			table = compile(in);
+		}
+		Path out = Paths.get(args[1]);
+		if (out.getParent() != null) Files.createDirectories(out.getParent());
+		Files.write(out, table);
+	}
+
+	/**
+	 * Compiles CSV rows of {@code category,kind,unit,factor}, preceded by a {@code version,N} row.
+	 * Affine rows take a fifth {@code offset} column.
+	 */
+	public static byte[] compile(Reader csv) throws IOException {
+		BufferedReader in = csv instanceof BufferedReader ? (BufferedReader) csv : new BufferedReader(csv);
+		Map<String, Integer> strings = new LinkedHashMap<>();
+		List<int[]> categories = new ArrayList<>(); // name, kind, firstUnit, unitCount
+		List<Integer> unitNames = new ArrayList<>();
+		List<Double> factors = new ArrayList<>();
+		List<Double> offsets = new ArrayList<>();
+		int version = -1;
+		String current = null;
+		String line;
+		int lineNo = 0;
+		while ((line = in.readLine()) != null) {
+			lineNo++;
+			line = line.trim();
+			if (line.isEmpty() || line.startsWith("#")) continue;
+			if (version < 0) {
+				if (!line.startsWith("version,")) throw new IllegalArgumentException("Line " + lineNo + ": expected version row");
+				version = Integer.parseInt(line.substring(8).trim());
+				continue;
+			}
+			String[] cols = line.split(",", -1);
+			int kind = cols.length > 1 ? kind(cols[1].trim(), lineNo) : -1;
+			int expected = kind == UnitTable.AFFINE ? 5 : 4;
+			if (cols.length != expected) {
+				throw new IllegalArgumentException("Line " + lineNo + ": expected category,kind,unit,factor" + (expected == 5 ? ",offset" : ""));
+			}
+			String category = cols[0].trim();
+			String unit = cols[2].trim();
+			double factor = number(cols[3], lineNo);
+			double offset = expected == 5 ? number(cols[4], lineNo) : 0;
+			if (!category.equals(current)) {
+				for (int[] c : categories) {
+					if (c[0] == intern(strings, category)) throw new IllegalArgumentException("Line " + lineNo + ": category " + category + " is split");
+				}
+				categories.add(new int[] { intern(strings, category), kind, unitNames.size(), 0 });
+				current = category;
+			}
+			int[] c = categories.get(categories.size() - 1);
+			if (c[1] != kind) throw new IllegalArgumentException("Line " + lineNo + ": kind differs within " + category);
+			c[3]++;
+			unitNames.add(intern(strings, unit));
+			factors.add(factor);
+			offsets.add(offset);
+		}
+		if (version < 0) throw new IllegalArgumentException("Missing version row");
+
+		byte[][] encoded = new byte[strings.size()][];
+		int stringBytes = 0;
+		int i = 0;
+		for (String s : strings.keySet()) {
+			encoded[i] = s.getBytes(StandardCharsets.UTF_8);
+			stringBytes += encoded[i++].length;
+		}
+		int unitsOff = UnitTable.HEADER_SIZE + UnitTable.CATEGORY_SIZE * categories.size();
+		int factorsOff = align8(unitsOff + 2 * unitNames.size());
+		int offsetsOff = factorsOff + 8 * factors.size();
+		int stringOffsOff = offsetsOff + 8 * offsets.size();
+		int stringDataOff = stringOffsOff + 4 * (encoded.length + 1);
+		ByteBuffer b = ByteBuffer.allocate(stringDataOff + stringBytes);
+		b.putInt(UnitTable.MAGIC).putShort((short) UnitTable.FORMAT).putShort((short) categories.size())
+			.putInt(unitNames.size()).putInt(encoded.length).putInt(version)
+			.putInt(unitsOff).putInt(factorsOff).putInt(offsetsOff).putInt(stringOffsOff).putInt(stringDataOff);
+		b.position(UnitTable.HEADER_SIZE);
+		for (int[] c : categories) b.putShort((short) c[0]).put((byte) c[1]).put((byte) 0).putShort((short) c[2]).putShort((short) c[3]);
+		for (int name : unitNames) b.putShort((short) name);
+		b.position(factorsOff);
+		for (double f : factors) b.putDouble(f);
+		for (double o : offsets) b.putDouble(o);
+		int off = 0;
+		for (byte[] s : encoded) { b.putInt(off); off += s.length; }
+		b.putInt(off);
+		for (byte[] s : encoded) b.put(s);
+		return b.array();
+	}
+
+	private static double number(String text, int lineNo) {
+		try {
+			return Double.parseDouble(text.trim());
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Line " + lineNo + ": bad number " + text.trim());
+		}
+	}
+
+	private static int kind(String name, int lineNo) {
+		for (int k = 0; k < KINDS.length; k++) if (KINDS[k].equals(name)) return k;
+		throw new IllegalArgumentException("Line " + lineNo + ": unknown kind " + name);
+	}
+
+	private static int intern(Map<String, Integer> strings, String s) {
+		Integer id = strings.get(s);
+		if (id == null) {
+			id = strings.size();
+			strings.put(s, id);
+		}
+		return id;
+	}
+
+	private static int align8(int n) { return (n + 7) & ~7; }
+}
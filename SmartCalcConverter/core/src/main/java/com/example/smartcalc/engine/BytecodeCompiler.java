@@ -0,0 +1,268 @@
+package com.example.smartcalc.engine;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Translates a program into a hidden class whose {@link Formula#apply} is the whole formula as
+ * straight-line bytecode: operands stay on the JVM stack, temps become locals, constants are
+ * {@code ldc2_w} literals and functions are direct {@code invokestatic} calls, so the JIT can
+ * inline and register-allocate the formula like hand-written Java. There are no branches, so the
+ * class file needs no stack map frames.
+ *
+ * <p>Where classes cannot be defined at run time (Android's runtime does not load JVM bytecode)
+ * the first failure switches the compiler off and every expression stays interpreted.
+ */
+final class BytecodeCompiler {
+	private BytecodeCompiler() {}
+
+	private static final int CLASS_VERSION = 61;
+	// well under the 64 KiB method limit, leaving room for the instructions a single opcode expands to
+	private static final int MAX_CODE_BYTES = 60_000;
+	private static final String CLASS_NAME = "com/example/smartcalc/engine/GeneratedFormula";
+	private static final String MATH = "java/lang/Math";
+	private static final String EVALUATOR = "com/example/smartcalc/engine/ExpressionEvaluator";
+
+	// JVM instructions used by the generated code
+	private static final int ICONST_0 = 0x03;
+	private static final int DCONST_0 = 0x0E;
+	private static final int DCONST_1 = 0x0F;
+	private static final int BIPUSH = 0x10;
+	private static final int SIPUSH = 0x11;
+	private static final int LDC2_W = 0x14;
+	private static final int DLOAD = 0x18;
+	private static final int DLOAD_0 = 0x26;
+	private static final int ALOAD_0 = 0x2A;
+	private static final int ALOAD_1 = 0x2B;
+	private static final int DALOAD = 0x31;
+	private static final int DSTORE = 0x39;
+	private static final int DSTORE_0 = 0x47;
+	private static final int DUP2 = 0x5C;
+	private static final int DADD = 0x63;
+	private static final int DSUB = 0x67;
+	private static final int DMUL = 0x6B;
+	private static final int DDIV = 0x6F;
+	private static final int DREM = 0x73;
+	private static final int DNEG = 0x77;
+	private static final int DRETURN = 0xAF;
+	private static final int RETURN = 0xB1;
+	private static final int INVOKESPECIAL = 0xB7;
+	private static final int INVOKESTATIC = 0xB8;
+	private static final int WIDE = 0xC4;
+	private static final int ACC_PUBLIC = 0x0001;
+	private static final int ACC_FINAL = 0x0010;
+	private static final int ACC_SUPER = 0x0020;
+
+	private static volatile boolean unsupported;
+
+	/** The compiled formula, or null if the program is too large or classes cannot be defined here. */
+	static Formula compile(int[] code, double[] constants, int maxStack, int temps) {
+		if (unsupported) return null;
+		byte[] bytes = classFile(code, constants, maxStack, temps);
+		if (bytes == null) return null;
+		try {
+			Class<?> c = MethodHandles.lookup().defineHiddenClass(bytes, true).lookupClass();
+			return (Formula) c.getDeclaredConstructor().newInstance();
+		} catch (LinkageError | UnsupportedOperationException | ReflectiveOperationException e) {
+			unsupported = true;
+			return null;
+		}
+	}
+
+	static byte[] classFile(int[] code, double[] constants, int maxStack, int temps) {
+		if (2 * maxStack + 2 > 0xFFFF || 2 * temps + 4 > 0xFFFF) return null;
+		ConstantPool cp = new ConstantPool();
+		int thisClass = cp.classRef(CLASS_NAME);
+		int object = cp.classRef("java/lang/Object");
+		int formula = cp.classRef("com/example/smartcalc/engine/Formula");
+		int objectInit = cp.methodRef("java/lang/Object", "<init>", "()V");
+		int nameInit = cp.utf8("<init>");
+		int descInit = cp.utf8("()V");
+		int nameApply = cp.utf8("apply");
+		int descApply = cp.utf8("([D)D");
+		int codeAttr = cp.utf8("Code");
+
+		// apply(double[]): local 0 this, 1 values, then two slots per temp and two of scratch for INV
+		int scratch = 2 + 2 * temps;
+		Bytes body = new Bytes();
+		for (int insn : code) {
+			int arg = Opcodes.arg(insn);
+			switch (Opcodes.op(insn)) {
+				case Opcodes.CONST: {
+					double v = constants[arg];
+					if (Double.doubleToRawLongBits(v) == 0L) body.u1(DCONST_0);
+					else if (v == 1.0) body.u1(DCONST_1);
+					else body.u1(LDC2_W).u2(cp.doubleConstant(v));
+					break;
+				}
+				case Opcodes.VAR:
+					body.u1(ALOAD_1);
+					pushInt(body, arg);
+					body.u1(DALOAD);
+					break;
+				case Opcodes.LOAD: localOp(body, DLOAD, 2 + 2 * arg); break;
+				case Opcodes.STORE: body.u1(DUP2); localOp(body, DSTORE, 2 + 2 * arg); break;
+				case Opcodes.ADD: body.u1(DADD); break;
+				case Opcodes.SUB: body.u1(DSUB); break;
+				case Opcodes.MUL: body.u1(DMUL); break;
+				case Opcodes.DIV: body.u1(DDIV); break;
+				case Opcodes.MOD: body.u1(DREM); break;
+				case Opcodes.NEG: body.u1(DNEG); break;
+				case Opcodes.INV:
+					// 1.0 / x with x on top; there is no swap for doubles
+					localOp(body, DSTORE, scratch);
+					body.u1(DCONST_1);
+					localOp(body, DLOAD, scratch);
+					body.u1(DDIV);
+					break;
+				case Opcodes.POW: invokeStatic(body, cp.methodRef(MATH, "pow", "(DD)D")); break;
+				case Opcodes.SIN: invokeStatic(body, cp.methodRef(MATH, "sin", "(D)D")); break;
+				case Opcodes.COS: invokeStatic(body, cp.methodRef(MATH, "cos", "(D)D")); break;
+				case Opcodes.TAN: invokeStatic(body, cp.methodRef(MATH, "tan", "(D)D")); break;
+				case Opcodes.ASIN: invokeStatic(body, cp.methodRef(MATH, "asin", "(D)D")); break;
+				case Opcodes.ACOS: invokeStatic(body, cp.methodRef(MATH, "acos", "(D)D")); break;
+				case Opcodes.ATAN: invokeStatic(body, cp.methodRef(MATH, "atan", "(D)D")); break;
+				case Opcodes.LN: invokeStatic(body, cp.methodRef(MATH, "log", "(D)D")); break;
+				case Opcodes.LOG: invokeStatic(body, cp.methodRef(MATH, "log10", "(D)D")); break;
+				case Opcodes.SQRT: invokeStatic(body, cp.methodRef(MATH, "sqrt", "(D)D")); break;
+				case Opcodes.FACT: invokeStatic(body, cp.methodRef(EVALUATOR, "factorial", "(D)D")); break;
+				case Opcodes.LGAMMA: invokeStatic(body, cp.methodRef(EVALUATOR, "lgamma", "(D)D")); break;
+				default: throw new IllegalStateException("Unknown opcode: " + Opcodes.op(insn));
+			}
+			if (body.size() > MAX_CODE_BYTES || cp.count > 0xFFF0) return null;
+		}
+		body.u1(DRETURN);
+
+		Bytes init = new Bytes().u1(ALOAD_0).u1(INVOKESPECIAL).u2(objectInit).u1(RETURN);
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(256 + body.size());
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			out.writeInt(0xCAFEBABE);
+			out.writeShort(0);
+			out.writeShort(CLASS_VERSION);
+			out.writeShort(cp.count);
+			cp.entries.writeTo(out);
+			out.writeShort(ACC_FINAL | ACC_SUPER);
+			out.writeShort(thisClass);
+			out.writeShort(object);
+			out.writeShort(1);
+			out.writeShort(formula);
+			out.writeShort(0); // fields
+			out.writeShort(2); // methods
+			method(out, nameInit, descInit, codeAttr, 1, 1, init);
+			// the VAR sequence pushes a reference and an int above the doubles already on the stack
+			method(out, nameApply, descApply, codeAttr, 2 * maxStack + 2, scratch + 2, body);
+			out.writeShort(0); // class attributes
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		return bytes.toByteArray();
+	}
+
+	private static void method(DataOutputStream out, int name, int descriptor, int codeAttr, int maxStack, int maxLocals, Bytes code) throws IOException {
+		out.writeShort(ACC_PUBLIC);
+		out.writeShort(name);
+		out.writeShort(descriptor);
+		out.writeShort(1);
+		out.writeShort(codeAttr);
+		out.writeInt(12 + code.size());
+		out.writeShort(maxStack);
+		out.writeShort(maxLocals);
+		out.writeInt(code.size());
+		code.writeTo(out);
+		out.writeShort(0); // exception table
+		out.writeShort(0); // code attributes
+	}
+
+	private static void pushInt(Bytes b, int v) {
+		if (v <= 5) b.u1(ICONST_0 + v);
+		else if (v <= Byte.MAX_VALUE) b.u1(BIPUSH).u1(v);
+		else b.u1(SIPUSH).u2(v);
+	}
+
+	// dload/dstore with the one-byte forms for locals 0..3 and wide for locals past 255
+	private static void localOp(Bytes b, int opcode, int local) {
+		if (local <= 3) b.u1((opcode == DLOAD ? DLOAD_0 : DSTORE_0) + local);
+		else if (local <= 0xFF) b.u1(opcode).u1(local);
+		else b.u1(WIDE).u1(opcode).u2(local);
+	}
+
+	private static void invokeStatic(Bytes b, int method) {
+		b.u1(INVOKESTATIC).u2(method);
+	}
+
+	private static final class Bytes {
+		private byte[] data = new byte[64];
+		private int size;
+
+		Bytes u1(int v) {
+			if (size == data.length) data = Arrays.copyOf(data, size * 2);
+			data[size++] = (byte) v;
+			return this;
+		}
+
+		Bytes u2(int v) { return u1(v >>> 8).u1(v); }
+
+		int size() { return size; }
+
+		void writeTo(DataOutputStream out) throws IOException { out.write(data, 0, size); }
+	}
+
+	private static final class ConstantPool {
+		final Bytes entries = new Bytes();
+		// entry 0 is unused; doubles take two
+		int count = 1;
+		private final Map<Object, Integer> index = new HashMap<>();
+
+		int utf8(String s) {
+			Integer i = index.get(s);
+			if (i != null) return i;
+			entries.u1(1).u2(s.length());
+			for (int c = 0; c < s.length(); c++) entries.u1(s.charAt(c));
+			return add(s, 1);
+		}
+
+		int classRef(String internalName) {
+			String key = "C" + internalName;
+			Integer i = index.get(key);
+			if (i != null) return i;
+			int name = utf8(internalName);
+			entries.u1(7).u2(name);
+			return add(key, 1);
+		}
+
+		int methodRef(String owner, String name, String descriptor) {
+			String key = "M" + owner + "." + name + descriptor;
+			Integer i = index.get(key);
+			if (i != null) return i;
+			int c = classRef(owner);
+			int n = utf8(name);
+			int d = utf8(descriptor);
+			entries.u1(12).u2(n).u2(d);
+			int nameAndType = count++;
+			entries.u1(10).u2(c).u2(nameAndType);
+			return add(key, 1);
+		}
+
+		int doubleConstant(double v) {
+			Long key = Double.doubleToRawLongBits(v);
+			Integer i = index.get(key);
+			if (i != null) return i;
+			long bits = key;
+			entries.u1(6).u2((int) (bits >>> 48)).u2((int) (bits >>> 32)).u2((int) (bits >>> 16)).u2((int) bits);
+			return add(key, 2);
+		}
+
+		private int add(Object key, int slots) {
+			int i = count;
+			count += slots;
+			index.put(key, i);
+			return i;
+		}
+	}
+}
@@ -0,0 +1,363 @@
+package com.example.smartcalc.engine;
+
+import com.example.smartcalc.metrics.EvaluationMetrics;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An expression that has already been tokenized and converted to RPN. Instances are immutable
+ * and may be shared freely between threads; obtain them through {@link ExpressionEvaluator#compile}.
+ * <p>
+ * The program is stored as int opcodes (see {@link Opcodes}) with a {@code double[]} constant pool
+ * and runs on a primitive operand stack whose depth is computed at compile time, so a steady-state
+ * evaluation does not allocate. Double evaluation runs the {@link Optimizer}'s rewrite of the
+ * program; decimal evaluation runs the program as written, since folding in double would lose the
+ * exactness of decimal literals.
+ * <p>
+ * Once an expression has been evaluated {@link ExpressionEvaluator#setJitThreshold more than a
+ * threshold number of times} it is handed to the {@link BytecodeCompiler}, and later evaluations
+ * call the generated class instead of the interpreter.
+ */
+public final class CompiledExpression {
+	// not ThreadLocal.withInitial, which Android only has from API 26
+	private static final ThreadLocal<double[]> SCRATCH = new ThreadLocal<double[]>() {
+		@Override
+		protected double[] initialValue() { return new double[16]; }
+	};
+	private static final double[] NO_VALUES = new double[0];
+	// rows per column block in batch mode; small enough that the operand stack stays in cache
+	private static final int BATCH_BLOCK = 512;
+	// digits that hold every integer the exact double path accepts (below 2^53), so rounding to them is a no-op
+	private static final int EXACT_PRECISION = 16;
+
+	private final String source;
+	// optimized program for double evaluation; temps sit in the stack above maxStack
+	private final int[] code;
+	private final double[] constants;
+	private final int maxStack;
+	private final int temps;
+	// the program as written, for decimal evaluation
+	private final int[] rpnCode;
+	private final double[] rpnConstants;
+	private final int rpnStack;
+	// source text of each rpnConstants entry, "pi" or "e" for the named ones; numbers are cut from
+	// source at their literalSpans (start, end pairs) on first decimal evaluation, a benign race
+	private final String[] literals;
+	private final int[] literalSpans;
+	// only + - * / % and negation over literals that are exactly integers, so integer inputs may stay in double
+	private final boolean integral;
+	private final List<String> variables;
+	// racy by design: a lost update only delays promotion by an evaluation
+	private int invocations;
+	private volatile Formula formula;
+
+	CompiledExpression(String source, List<ExpressionEvaluator.Token> rpn) {
+		this(source, rpn, true);
+	}
+
+	// rpn has been checked by ExpressionEvaluator: known functions and enough operands for every operator
+	CompiledExpression(String source, List<ExpressionEvaluator.Token> rpn, boolean optimize) {
+		this.source = source;
+		int[] code = new int[rpn.size()];
+		double[] constants = new double[rpn.size()];
+		String[] literals = new String[rpn.size()];
+		int[] spans = new int[2 * rpn.size()];
+		boolean integral = true;
+		List<String> variables = new ArrayList<>();
+		int nConst = 0;
+		int depth = 0;
+		int max = 0;
+		for (int i = 0; i < code.length; i++) {
+			ExpressionEvaluator.Token t = rpn.get(i);
+			int op;
+			switch (t.type) {
+				case NUMBER:
+					op = Opcodes.CONST;
+					constants[nConst] = t.value;
+					spans[2 * nConst] = t.start;
+					spans[2 * nConst + 1] = t.end;
+					integral = integral && t.value == Math.rint(t.value) && isExactly(source, t, t.value);
+					code[i] = Opcodes.insn(op, nConst++);
+					break;
+				case CONST:
+					op = Opcodes.CONST;
+					constants[nConst] = t.value;
+					literals[nConst] = t.text;
+					integral = false;
+					code[i] = Opcodes.insn(op, nConst++);
+					break;
+				case VAR:
+					op = Opcodes.VAR;
+					int slot = variables.indexOf(t.text);
+					if (slot < 0) {
+						slot = variables.size();
+						variables.add(t.text);
+					}
+					code[i] = Opcodes.insn(op, slot);
+					break;
+				case OP:
+				case FACT:
+					op = t.opcode;
+					code[i] = op;
+					break;
+				case FUNC:
+					op = t.opcode;
+					code[i] = op;
+					break;
+				default:
+					throw new IllegalArgumentException("Mismatched parens");
+			}
+			integral &= op <= Opcodes.MOD || op == Opcodes.NEG || op == Opcodes.VAR;
+			depth = depth - Opcodes.arity(op) + 1;
+			if (depth > max) max = depth;
+		}
+		this.rpnCode = code;
+		this.rpnConstants = Arrays.copyOf(constants, nConst);
+		this.rpnStack = max;
+		this.literals = Arrays.copyOf(literals, nConst);
+		this.literalSpans = Arrays.copyOf(spans, 2 * nConst);
+		this.integral = integral;
+		this.variables = Collections.unmodifiableList(variables);
+		if (optimize) {
+			Optimizer.Program p = Optimizer.optimize(rpnCode, rpnConstants);
+			this.code = p.code;
+			this.constants = p.constants;
+			this.maxStack = p.maxStack;
+			this.temps = p.temps;
+		} else {
+			this.code = rpnCode;
+			this.constants = rpnConstants;
+			this.maxStack = rpnStack;
+			this.temps = 0;
+		}
+	}
+
+	public String source() { return source; }
+
+	/** Variable names in the order their values are expected by {@link #evaluate(double...)}. */
+	public List<String> variables() { return variables; }
+
+	/** Stack size needed by {@link #evaluate(double[], double[])}: operands plus temps. */
+	public int stackSize() { return maxStack + temps; }
+
+	/** Instructions run per double evaluation, after optimization. */
+	public int instructionCount() { return code.length; }
+
+	public double evaluate() throws IllegalArgumentException {
+		return evaluate(NO_VALUES);
+	}
+
+	/** Evaluates with {@code values[i]} bound to {@code variables().get(i)}. */
+	public double evaluate(double... values) throws IllegalArgumentException {
+		double[] stack = SCRATCH.get();
+		if (stack.length < maxStack + temps) {
+			stack = new double[maxStack + temps];
+			SCRATCH.set(stack);
+		}
+		return evaluate(values, stack);
+	}
+
+	/** Evaluates on a caller-owned stack of at least {@link #stackSize()} slots. */
+	public double evaluate(double[] values, double[] stack) throws IllegalArgumentException {
+		long t = EvaluationMetrics.start();
+		double result;
+		Formula f = formula;
+		if (f != null) {
+			checkBound(values);
+			result = f.apply(values);
+		} else {
+			result = run(values, stack);
+			int threshold = ExpressionEvaluator.getJitThreshold();
+			if (threshold >= 0 && ++invocations > threshold) promote();
+		}
+		EvaluationMetrics.stop(EvaluationMetrics.Stage.EVALUATE, t);
+		return result;
+	}
+
+	/** Compiles to bytecode now, regardless of the threshold; false if this runtime cannot. */
+	synchronized boolean promote() {
+		if (formula == null && invocations != Integer.MIN_VALUE) {
+			formula = BytecodeCompiler.compile(code, constants, maxStack, temps);
+		}
+		// never counted again once the attempt is made
+		invocations = Integer.MIN_VALUE;
+		return formula != null;
+	}
+
+	private void checkBound(double[] values) {
+		if (values.length < variables.size()) {
+			IllegalArgumentException e = new IllegalArgumentException("Unbound variable: " + variables.get(values.length));
+			EvaluationMetrics.error(e);
+			throw e;
+		}
+	}
+
+	// the interpreter proper, without the metrics hooks
+	double run(double[] values, double[] stack) throws IllegalArgumentException {
+		checkBound(values);
+		final int[] code = this.code;
+		final double[] k = this.constants;
+		final double[] s = stack;
+		final int t = maxStack;
+		int sp = 0;
+		for (int insn : code) {
+			switch (Opcodes.op(insn)) {
+				case Opcodes.CONST: s[sp++] = k[Opcodes.arg(insn)]; break;
+				case Opcodes.VAR: s[sp++] = values[Opcodes.arg(insn)]; break;
+				case Opcodes.LOAD: s[sp++] = s[t + Opcodes.arg(insn)]; break;
+				case Opcodes.STORE: s[t + Opcodes.arg(insn)] = s[sp - 1]; break;
+				case Opcodes.ADD: sp--; s[sp - 1] += s[sp]; break;
+				case Opcodes.SUB: sp--; s[sp - 1] -= s[sp]; break;
+				case Opcodes.MUL: sp--; s[sp - 1] *= s[sp]; break;
+				case Opcodes.DIV: sp--; s[sp - 1] /= s[sp]; break;
+				case Opcodes.MOD: sp--; s[sp - 1] %= s[sp]; break;
+				case Opcodes.POW: sp--; s[sp - 1] = Math.pow(s[sp - 1], s[sp]); break;
+				case Opcodes.NEG: s[sp - 1] = -s[sp - 1]; break;
+				case Opcodes.SIN: s[sp - 1] = Math.sin(s[sp - 1]); break;
+				case Opcodes.COS: s[sp - 1] = Math.cos(s[sp - 1]); break;
+				case Opcodes.TAN: s[sp - 1] = Math.tan(s[sp - 1]); break;
+				case Opcodes.ASIN: s[sp - 1] = Math.asin(s[sp - 1]); break;
+				case Opcodes.ACOS: s[sp - 1] = Math.acos(s[sp - 1]); break;
+				case Opcodes.ATAN: s[sp - 1] = Math.atan(s[sp - 1]); break;
+				case Opcodes.LN: s[sp - 1] = Math.log(s[sp - 1]); break;
+				case Opcodes.LOG: s[sp - 1] = Math.log10(s[sp - 1]); break;
+				case Opcodes.SQRT: s[sp - 1] = Math.sqrt(s[sp - 1]); break;
+				case Opcodes.INV: s[sp - 1] = 1.0 / s[sp - 1]; break;
+				case Opcodes.FACT: s[sp - 1] = ExpressionEvaluator.factorial(s[sp - 1]); break;
+				case Opcodes.LGAMMA: s[sp - 1] = ExpressionEvaluator.lgamma(s[sp - 1]); break;
+			}
+		}
+		return s[0];
+	}
+
+	/**
+	 * Evaluates in {@link BigDecimal} arithmetic rounded per {@code mc}. Literals keep their exact
+	 * decimal value and {@code %} is an exact remainder; {@code ^} is exact for integer exponents,
+	 * though with an unlimited {@code mc} a power of more than about 39,000 digits is an overflow
+	 * error. Functions and non-integer powers are computed in double and converted. Programs made
+	 * only of integer + - * / % run in double first and are converted only if every step stayed
+	 * exact, when {@code mc} is unlimited or has at least {@value #EXACT_PRECISION} digits, so no
+	 * intermediate result would have been rounded.
+	 */
+	public BigDecimal evaluate(MathContext mc, double... values) throws IllegalArgumentException {
+		if (values.length < variables.size()) {
+			throw new IllegalArgumentException("Unbound variable: " + variables.get(values.length));
+		}
+		if (integral && (mc.getPrecision() == 0 || mc.getPrecision() >= EXACT_PRECISION)) {
+			double[] stack = SCRATCH.get();
+			if (stack.length < rpnStack) {
+				stack = new double[rpnStack];
+				SCRATCH.set(stack);
+			}
+			if (DecimalInterpreter.evaluateExactIntegers(rpnCode, rpnConstants, values, stack)) {
+				return new BigDecimal((long) stack[0]).round(mc);
+			}
+		}
+		return DecimalInterpreter.evaluate(rpnCode, literals(), values, rpnStack, mc);
+	}
+
+	// whether the literal at t's span is exactly the double it parsed to: 3.0000000000000000001 is not 3, nor 1e999 infinity
+	private static boolean isExactly(String source, ExpressionEvaluator.Token t, double value) {
+		if (Double.isInfinite(value)) return false;
+		try {
+			return new BigDecimal(source.substring(t.start, t.end)).compareTo(new BigDecimal(value)) == 0;
+		} catch (NumberFormatException e) {
+			// an exponent beyond int, as in 0e9999999999, which the scanner clamps
+			return false;
+		}
+	}
+
+	private String[] literals() {
+		String[] l = literals;
+		for (int i = 0; i < l.length; i++) {
+			if (l[i] == null) l[i] = source.substring(literalSpans[2 * i], literalSpans[2 * i + 1]);
+		}
+		return l;
+	}
+
+	/** Orders {@code columns} by variable slot, checking that each holds {@code rows} values. */
+	double[][] bindColumns(Map<String, double[]> columns, int rows) {
+		double[][] bound = new double[variables.size()][];
+		for (int v = 0; v < bound.length; v++) {
+			String name = variables.get(v);
+			double[] col = columns.get(name);
+			if (col == null) throw new IllegalArgumentException("Unbound variable: " + name);
+			if (col.length != rows) throw new IllegalArgumentException("Column " + name + " has " + col.length + " rows, expected " + rows);
+			bound[v] = col;
+		}
+		return bound;
+	}
+
+	/**
+	 * Evaluates rows {@code [from, to)} column-wise: each opcode runs as one tight loop over a block
+	 * of rows, which the JIT can unroll and vectorize, instead of dispatching once per row.
+	 */
+	void evaluateBatch(double[][] columns, double[] out, int from, int to) {
+		final int[] code = this.code;
+		final double[] k = this.constants;
+		final double[][] s = new double[maxStack + temps][Math.min(BATCH_BLOCK, Math.max(0, to - from))];
+		for (int base = from; base < to; base += BATCH_BLOCK) {
+			final int n = Math.min(BATCH_BLOCK, to - base);
+			int sp = 0;
+			for (int insn : code) {
+				int op = Opcodes.op(insn);
+				if (op == Opcodes.CONST) {
+					Arrays.fill(s[sp++], 0, n, k[Opcodes.arg(insn)]);
+					continue;
+				}
+				if (op == Opcodes.VAR) {
+					System.arraycopy(columns[Opcodes.arg(insn)], base, s[sp++], 0, n);
+					continue;
+				}
+				if (op == Opcodes.LOAD) {
+					System.arraycopy(s[maxStack + Opcodes.arg(insn)], 0, s[sp++], 0, n);
+					continue;
+				}
+				if (op == Opcodes.STORE) {
+					System.arraycopy(s[sp - 1], 0, s[maxStack + Opcodes.arg(insn)], 0, n);
+					continue;
+				}
+				if (Opcodes.arity(op) == 2) {
+					sp--;
+					final double[] a = s[sp - 1];
+					final double[] b = s[sp];
+					switch (op) {
+						case Opcodes.ADD: for (int i = 0; i < n; i++) a[i] += b[i]; break;
+						case Opcodes.SUB: for (int i = 0; i < n; i++) a[i] -= b[i]; break;
+						case Opcodes.MUL: for (int i = 0; i < n; i++) a[i] *= b[i]; break;
+						case Opcodes.DIV: for (int i = 0; i < n; i++) a[i] /= b[i]; break;
+						case Opcodes.MOD: for (int i = 0; i < n; i++) a[i] %= b[i]; break;
+						case Opcodes.POW: for (int i = 0; i < n; i++) a[i] = Math.pow(a[i], b[i]); break;
+					}
+					continue;
+				}
+				final double[] a = s[sp - 1];
+				switch (op) {
+					case Opcodes.NEG: for (int i = 0; i < n; i++) a[i] = -a[i]; break;
+					case Opcodes.SIN: for (int i = 0; i < n; i++) a[i] = Math.sin(a[i]); break;
+					case Opcodes.COS: for (int i = 0; i < n; i++) a[i] = Math.cos(a[i]); break;
+					case Opcodes.TAN: for (int i = 0; i < n; i++) a[i] = Math.tan(a[i]); break;
+					case Opcodes.ASIN: for (int i = 0; i < n; i++) a[i] = Math.asin(a[i]); break;
+					case Opcodes.ACOS: for (int i = 0; i < n; i++) a[i] = Math.acos(a[i]); break;
+					case Opcodes.ATAN: for (int i = 0; i < n; i++) a[i] = Math.atan(a[i]); break;
+					case Opcodes.LN: for (int i = 0; i < n; i++) a[i] = Math.log(a[i]); break;
+					case Opcodes.LOG: for (int i = 0; i < n; i++) a[i] = Math.log10(a[i]); break;
+					case Opcodes.SQRT: for (int i = 0; i < n; i++) a[i] = Math.sqrt(a[i]); break;
+					case Opcodes.INV: for (int i = 0; i < n; i++) a[i] = 1.0 / a[i]; break;
+					case Opcodes.FACT: for (int i = 0; i < n; i++) a[i] = ExpressionEvaluator.factorial(a[i]); break;
+					case Opcodes.LGAMMA: for (int i = 0; i < n; i++) a[i] = ExpressionEvaluator.lgamma(a[i]); break;
+				}
+			}
+			System.arraycopy(s[0], 0, out, base, n);
+		}
+	}
+
+	@Override
+	public String toString() { return source; }
+}
@@ -0,0 +1,120 @@
+package com.example.smartcalc.engine;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+
+/** {@link BigDecimal} evaluation of a compiled program; see {@link CompiledExpression#evaluate(MathContext, double...)}. */
+final class DecimalInterpreter {
+	private DecimalInterpreter() {}
+
+	private static final BigDecimal PI = new BigDecimal("3.14159265358979323846264338327950288419716939937510582097494459");
+	private static final BigDecimal E = new BigDecimal("2.71828182845904523536028747135266249775724709369995957496696763");
+	// |x| below this is an integer double whose + - * results are exact whenever they stay below it too
+	private static final double EXACT_LIMIT = 0x1p53;
+	// exact n! beyond this gets large enough that the double gamma path is the better trade-off
+	private static final int MAX_EXACT_FACTORIAL = 1000;
+	// bits an unrounded integer power may reach, about 39,000 digits; 2^999999999 would take minutes
+	private static final long MAX_EXACT_POWER_BITS = 1 << 17;
+
+	/**
+	 * Runs an integer-only program in double, leaving the result in {@code stack[0]}. Returns false
+	 * as soon as an operand or intermediate result might not be exact, in which case the caller
+	 * must redo the evaluation in decimal.
+	 */
+	static boolean evaluateExactIntegers(int[] code, double[] k, double[] values, double[] s) {
+		int sp = 0;
+		for (int insn : code) {
+			int op = Opcodes.op(insn);
+			double r;
+			switch (op) {
+				case Opcodes.CONST: r = k[Opcodes.arg(insn)]; break;
+				case Opcodes.VAR: r = values[Opcodes.arg(insn)]; if (r != Math.rint(r)) return false; break;
+				case Opcodes.NEG: r = -s[--sp]; break;
+				default: {
+					double b = s[--sp];
+					double a = s[--sp];
+					switch (op) {
+						case Opcodes.ADD: r = a + b; break;
+						case Opcodes.SUB: r = a - b; break;
+						case Opcodes.MUL: r = a * b; break;
+						case Opcodes.DIV: if (b == 0 || a % b != 0) return false; r = a / b; break;
+						case Opcodes.MOD: if (b == 0) return false; r = a % b; break;
+						default: return false;
+					}
+				}
+			}
+			if (!(Math.abs(r) < EXACT_LIMIT)) return false;
+			s[sp++] = r;
+		}
+		return true;
+	}
+
+	static BigDecimal evaluate(int[] code, String[] literals, double[] values, int maxStack, MathContext mc) {
+		BigDecimal[] s = new BigDecimal[maxStack];
+		int sp = 0;
+		try {
+			for (int insn : code) {
+				int op = Opcodes.op(insn);
+				switch (op) {
+					case Opcodes.CONST: s[sp++] = constant(literals[Opcodes.arg(insn)], mc); break;
+					case Opcodes.VAR: s[sp++] = toDecimal(values[Opcodes.arg(insn)]); break;
+					case Opcodes.ADD: sp--; s[sp - 1] = s[sp - 1].add(s[sp], mc); break;
+					case Opcodes.SUB: sp--; s[sp - 1] = s[sp - 1].subtract(s[sp], mc); break;
+					case Opcodes.MUL: sp--; s[sp - 1] = s[sp - 1].multiply(s[sp], mc); break;
+					case Opcodes.DIV: sp--; s[sp - 1] = s[sp - 1].divide(nonZero(s[sp]), mc); break;
+					case Opcodes.MOD: sp--; s[sp - 1] = s[sp - 1].remainder(nonZero(s[sp]), mc); break;
+					case Opcodes.POW: sp--; s[sp - 1] = pow(s[sp - 1], s[sp], mc); break;
+					case Opcodes.NEG: s[sp - 1] = s[sp - 1].negate(mc); break;
+					case Opcodes.FACT: s[sp - 1] = factorial(s[sp - 1], mc); break;
+					default: s[sp - 1] = toDecimal(Opcodes.apply(op, s[sp - 1].doubleValue())).round(mc); break;
+				}
+			}
+		} catch (ArithmeticException e) {
+			throw new IllegalArgumentException(e.getMessage(), e);
+		}
+		return s[0];
+	}
+
+	private static BigDecimal constant(String literal, MathContext mc) {
+		if (literal.equals("pi")) return PI.round(mc);
+		if (literal.equals("e")) return E.round(mc);
+		return new BigDecimal(literal).round(mc);
+	}
+
+	private static BigDecimal nonZero(BigDecimal divisor) {
+		if (divisor.signum() == 0) throw new IllegalArgumentException("Division by zero");
+		return divisor;
+	}
+
+	private static BigDecimal pow(BigDecimal base, BigDecimal exponent, MathContext mc) {
+		if (isInteger(exponent) && exponent.abs().compareTo(BigDecimal.valueOf(999_999_999)) <= 0) {
+			int n = exponent.intValueExact();
+			if (n < 0 && base.signum() == 0) throw new IllegalArgumentException("Division by zero");
+			if (mc.getPrecision() == 0 && (long) (base.unscaledValue().abs().bitLength() - 1) * Math.abs((long) n) > MAX_EXACT_POWER_BITS) {
+				throw new IllegalArgumentException("Overflow: exact power too large, use a bounded precision");
+			}
+			// BigDecimal.pow(int, MathContext) rejects negative exponents with an unlimited context
+			if (n < 0 && mc.getPrecision() == 0) return BigDecimal.ONE.divide(base.pow(-n), mc);
+			return base.pow(n, mc);
+		}
+		return toDecimal(Math.pow(base.doubleValue(), exponent.doubleValue())).round(mc);
+	}
+
+	private static BigDecimal factorial(BigDecimal x, MathContext mc) {
+		if (isInteger(x) && x.signum() >= 0 && x.compareTo(BigDecimal.valueOf(MAX_EXACT_FACTORIAL)) <= 0) {
+			BigDecimal r = BigDecimal.ONE;
+			for (int i = x.intValueExact(); i >= 2; i--) r = r.multiply(BigDecimal.valueOf(i), mc);
+			return r;
+		}
+		return toDecimal(ExpressionEvaluator.factorial(x.doubleValue())).round(mc);
+	}
+
+	private static boolean isInteger(BigDecimal x) {
+		return x.signum() == 0 || x.scale() <= 0 || x.stripTrailingZeros().scale() <= 0;
+	}
+
+	private static BigDecimal toDecimal(double v) {
+		if (Double.isNaN(v) || Double.isInfinite(v)) throw new IllegalArgumentException("Result is not a finite number: " + v);
+		return BigDecimal.valueOf(v);
+	}
+}
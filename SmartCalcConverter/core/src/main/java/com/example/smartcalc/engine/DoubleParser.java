@@ -0,0 +1,100 @@
+package com.example.smartcalc.engine;
+
+import java.math.BigInteger;
+
+/**
+ * Correctly rounded {@code mantissa * 10^exp10} without going through a string. Small cases are
+ * exact double arithmetic (Clinger's fast path); the rest use the Eisel-Lemire algorithm, one or
+ * two 64x128-bit multiplications against a table of truncated powers of ten, which decides the
+ * rounding for all but a vanishing fraction of inputs. Those, and anything out of the table's
+ * range, are left to the caller to parse the slow way.
+ */
+final class DoubleParser {
+	private DoubleParser() {}
+
+	private static final double[] SMALL_POWERS = {
+		1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+		1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+	};
+	private static final long MAX_EXACT_MANTISSA = 1L << 53;
+	static final int MIN_EXP10 = -342;
+	static final int MAX_EXP10 = 308;
+
+	/**
+	 * {@code mantissa} (read as unsigned) times {@code 10^exp10}, or NaN if the fast paths cannot
+	 * decide; no decimal literal is NaN, so callers fall back to {@link Double#parseDouble} then.
+	 */
+	static double toDouble(long mantissa, int exp10) {
+		if (mantissa == 0) return 0.0;
+		if (mantissa > 0 && mantissa <= MAX_EXACT_MANTISSA && exp10 >= -22 && exp10 <= 22) {
+			return exp10 < 0 ? mantissa / SMALL_POWERS[-exp10] : mantissa * SMALL_POWERS[exp10];
+		}
+		return eiselLemire(mantissa, exp10);
+	}
+
+	// after Lemire, "Number Parsing at a Gigabyte per Second", as in Go's strconv
+	private static double eiselLemire(long man, int exp10) {
+		if (exp10 < MIN_EXP10 || exp10 > MAX_EXP10) return Double.NaN;
+		int clz = Long.numberOfLeadingZeros(man);
+		man <<= clz;
+		long exp2 = ((217706L * exp10) >> 16) + 64 + 1023 - clz;
+		int row = 2 * (exp10 - MIN_EXP10);
+		long powHi = Powers.TABLE[row];
+		long powLo = Powers.TABLE[row + 1];
+		long xHi = multiplyHighUnsigned(man, powHi);
+		long xLo = man * powHi;
+		// the truncated power might have cost a carry into the bits that decide rounding: widen to 192 bits
+		if ((xHi & 0x1FF) == 0x1FF && Long.compareUnsigned(xLo + man, man) < 0) {
+			long yHi = multiplyHighUnsigned(man, powLo);
+			long yLo = man * powLo;
+			long mergedHi = xHi;
+			long mergedLo = xLo + yHi;
+			if (Long.compareUnsigned(mergedLo, xLo) < 0) mergedHi++;
+			if ((mergedHi & 0x1FF) == 0x1FF && mergedLo == -1L && Long.compareUnsigned(yLo + man, man) < 0) return Double.NaN;
+			xHi = mergedHi;
+			xLo = mergedLo;
+		}
+		long msb = xHi >>> 63;
+		long mantissa = xHi >>> (msb + 9);
+		exp2 -= 1 ^ msb;
+		// exactly halfway between two doubles at this precision
+		if (xLo == 0 && (xHi & 0x1FF) == 0 && (mantissa & 3) == 1) return Double.NaN;
+		mantissa += mantissa & 1;
+		mantissa >>>= 1;
+		if (mantissa >>> 53 > 0) {
+			mantissa >>>= 1;
+			exp2++;
+		}
+		// subnormal, infinite or out of range
+		if (exp2 <= 0 || exp2 >= 0x7FF) return Double.NaN;
+		return Double.longBitsToDouble(exp2 << 52 | mantissa & 0x000F_FFFF_FFFF_FFFFL);
+	}
+
+	private static long multiplyHighUnsigned(long a, long b) {
+		return Math.multiplyHigh(a, b) + ((a >> 63) & b) + ((b >> 63) & a);
+	}
+
+	// built on first use of the slow path, which most calculator input never reaches
+	private static final class Powers {
+		/** For each exponent, the top 128 bits of 10^exp10 rounded down, high word first. */
+		static final long[] TABLE = new long[2 * (MAX_EXP10 - MIN_EXP10 + 1)];
+
+		static {
+			BigInteger mask = BigInteger.ONE.shiftLeft(64).subtract(BigInteger.ONE);
+			for (int q = MIN_EXP10; q <= MAX_EXP10; q++) {
+				// 10^q and 5^q differ by a power of two, so their normalized mantissas are equal
+				BigInteger five = BigInteger.valueOf(5).pow(Math.abs(q));
+				BigInteger m;
+				if (q >= 0) {
+					int shift = five.bitLength() - 128;
+					m = shift > 0 ? five.shiftRight(shift) : five.shiftLeft(-shift);
+				} else {
+					m = BigInteger.ONE.shiftLeft(five.bitLength() + 127).divide(five);
+				}
+				int row = 2 * (q - MIN_EXP10);
+				TABLE[row] = m.shiftRight(64).longValue();
+				TABLE[row + 1] = m.and(mask).longValue();
+			}
+		}
+	}
+}
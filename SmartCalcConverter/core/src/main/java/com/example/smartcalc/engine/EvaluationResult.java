@@ -0,0 +1,80 @@
+package com.example.smartcalc.engine;
+
+import com.example.smartcalc.metrics.EvaluationMetrics.ErrorKind;
+
+/**
+ * Outcome of {@link ExpressionEvaluator#tryEvaluate} and {@link ExpressionSession#tryCurrentValue}:
+ * a value, or an error code with the character offset it was found at. Failures are reported
+ * without constructing an exception, so invalid input on a per-keystroke path costs no more than
+ * valid input.
+ */
+public final class EvaluationResult {
+	public enum ErrorCode {
+		MISMATCHED_PARENS("Mismatched parens", ErrorKind.MISMATCHED_PARENS),
+		/** An operator or function without enough operands, as in {@code 3+}. */
+		STACK_UNDERFLOW("Stack underflow", ErrorKind.STACK_UNDERFLOW),
+		UNKNOWN_FUNCTION("Unknown func", ErrorKind.UNKNOWN_FUNCTION),
+		UNBOUND_VARIABLE("Unbound variable", ErrorKind.UNBOUND_VARIABLE),
+		UNEXPECTED_CHAR("Unexpected char", ErrorKind.UNEXPECTED_CHAR),
+		BAD_NUMBER("Bad number", ErrorKind.BAD_NUMBER),
+		/** Empty input, or operands with no operator between them, as in {@code 2 3}. */
+		BAD_EXPRESSION("Bad expression", ErrorKind.BAD_EXPRESSION);
+
+		private final String text;
+		final ErrorKind kind;
+
+		ErrorCode(String text, ErrorKind kind) {
+			this.text = text;
+			this.kind = kind;
+		}
+	}
+
+	/** NaN when there is an error. */
+	public final double value;
+	/** Null on success. */
+	public final ErrorCode error;
+	/** Offset into the evaluated text of the token at fault, or -1 on success. */
+	public final int offset;
+	/** The offending name, character or literal, where the error has one. */
+	public final String detail;
+	/** Open parentheses closed at the end of the input to get a value. */
+	public final int autoClosed;
+
+	private EvaluationResult(double value, ErrorCode error, int offset, String detail, int autoClosed) {
+		this.value = value;
+		this.error = error;
+		this.offset = offset;
+		this.detail = detail;
+		this.autoClosed = autoClosed;
+	}
+
+	static EvaluationResult of(double value, int autoClosed) {
+		return new EvaluationResult(value, null, -1, null, autoClosed);
+	}
+
+	static EvaluationResult failure(ErrorCode error, int offset, String detail) {
+		return new EvaluationResult(Double.NaN, error, offset, detail, 0);
+	}
+
+	public boolean isOk() { return error == null; }
+
+	/** The message the throwing API uses for the same error, e.g. {@code Unknown func: foo}. */
+	public String message() {
+		if (error == null) return null;
+		return detail == null ? error.text : error.text + ": " + detail;
+	}
+
+	/** The exception the throwing API raises for this error. */
+	IllegalArgumentException toException() {
+		return error == ErrorCode.BAD_NUMBER ? new NumberFormatException(message()) : new IllegalArgumentException(message());
+	}
+
+	EvaluationResult shift(int by) {
+		return by == 0 || error == null ? this : new EvaluationResult(value, error, offset + by, detail, autoClosed);
+	}
+
+	@Override
+	public String toString() {
+		return error == null ? Double.toString(value) : message() + " at " + offset;
+	}
+}
@@ -0,0 +1,44 @@
+package com.example.smartcalc.engine;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/** Bounded LRU map from normalized expression text to its compiled form. */
+final class ExpressionCache {
+	private final Map<String, CompiledExpression> entries;
+	private long hits;
+	private long misses;
+	private long evictions;
+
+	ExpressionCache(int capacity) {
+		this.entries = new LinkedHashMap<String, CompiledExpression>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, CompiledExpression> eldest) {
+				if (size() <= capacity) return false;
+				evictions++;
+				return true;
+			}
+		};
+	}
+
+	synchronized CompiledExpression get(String key) {
+		CompiledExpression e = entries.get(key);
+		if (e != null) hits++; else misses++;
+		return e;
+	}
+
+	synchronized void put(String key, CompiledExpression value) {
+		entries.put(key, value);
+	}
+
+	synchronized void clear() {
+		entries.clear();
+		hits = 0;
+		misses = 0;
+		evictions = 0;
+	}
+
+	synchronized long hits() { return hits; }
+	synchronized long misses() { return misses; }
+	synchronized long evictions() { return evictions; }
+}
@@ -0,0 +1,434 @@
+package com.example.smartcalc.engine;
+
+import com.example.smartcalc.engine.EvaluationResult.ErrorCode;
+import com.example.smartcalc.metrics.EvaluationMetrics;
+import com.example.smartcalc.metrics.EvaluationMetrics.ErrorKind;
+import com.example.smartcalc.metrics.EvaluationMetrics.Stage;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+public final class ExpressionEvaluator {
+	private ExpressionEvaluator() {}
+
+	private static final int CACHE_CAPACITY = 256;
+	private static final ExpressionCache CACHE = new ExpressionCache(CACHE_CAPACITY);
+	// evaluations after which a compiled expression is translated to bytecode
+	public static final int DEFAULT_JIT_THRESHOLD = 10_000;
+	private static volatile int jitThreshold = DEFAULT_JIT_THRESHOLD;
+
+	public static double evaluate(String expression) throws IllegalArgumentException {
+		long start = EvaluationMetrics.start();
+		try {
+			double result = compile(expression).evaluate();
+			if (start != 0) EvaluationMetrics.audit(expression, System.nanoTime() - start, (ErrorKind) null);
+			return result;
+		} catch (IllegalArgumentException e) {
+			if (start != 0) EvaluationMetrics.audit(expression, System.nanoTime() - start, e);
+			throw e;
+		}
+	}
+
+	/**
+	 * Parses {@code expression} into a reusable program. Results are cached by normalized
+	 * text, so compiling the same formula again skips tokenizing and shunting-yard entirely.
+	 */
+	public static CompiledExpression compile(String expression) throws IllegalArgumentException {
+		if (expression == null) throw new IllegalArgumentException("null expr");
+		String key = normalize(expression);
+		CompiledExpression cached = CACHE.get(key);
+		if (cached != null) return cached;
+		Parse parse = new Parse();
+		if (!parse(key, false, parse)) {
+			EvaluationMetrics.error(parse.error.kind);
+			throw parse.failure().toException();
+		}
+		CompiledExpression compiled = compile(key, parse.rpn);
+		CACHE.put(key, compiled);
+		return compiled;
+	}
+
+	/**
+	 * Evaluates {@code expression} without throwing: the value, or an error code and the offset in
+	 * {@code expression} where it was found. Parentheses still open at the end are closed, so a
+	 * partial {@code sin(pi/2} gives 1 with {@link EvaluationResult#autoClosed} set; only input
+	 * that parses as written is cached.
+	 */
+	public static EvaluationResult tryEvaluate(String expression) {
+		if (expression == null) return EvaluationResult.failure(ErrorCode.BAD_EXPRESSION, 0, null);
+		long start = EvaluationMetrics.start();
+		String key = normalize(expression);
+		EvaluationResult result;
+		CompiledExpression compiled = CACHE.get(key);
+		Parse parse = null;
+		if (compiled == null) {
+			parse = new Parse();
+			if (parse(key, true, parse)) {
+				compiled = compile(key, parse.rpn);
+				if (parse.autoClosed == 0) CACHE.put(key, compiled);
+			}
+		}
+		if (compiled == null) {
+			result = parse.failure();
+		} else if (!compiled.variables().isEmpty()) {
+			result = firstVariable(key);
+		} else {
+			result = EvaluationResult.of(compiled.evaluate(), parse == null ? 0 : parse.autoClosed);
+		}
+		if (start != 0) {
+			if (!result.isOk()) EvaluationMetrics.error(result.error.kind);
+			EvaluationMetrics.audit(expression, System.nanoTime() - start, result.isOk() ? null : result.error.kind);
+		}
+		return result.shift(leadingWhitespace(expression));
+	}
+
+	/**
+	 * Evaluates {@code expression} for every row of {@code columns}, writing row {@code i} to
+	 * {@code out[i]}. Each variable of the expression must have a column of {@code out.length} values.
+	 */
+	public static void evaluateBatch(CompiledExpression expression, Map<String, double[]> columns, double[] out) throws IllegalArgumentException {
+		long t = EvaluationMetrics.start();
+		expression.evaluateBatch(expression.bindColumns(columns, out.length), out, 0, out.length);
+		EvaluationMetrics.stop(Stage.EVALUATE, t);
+	}
+
+	/**
+	 * Evaluates in decimal arithmetic, so {@code 0.1+0.2} is exactly {@code 0.3}. Rounding of every
+	 * intermediate result follows {@code mc}; see {@link CompiledExpression#evaluate(MathContext, double...)}.
+	 */
+	public static BigDecimal evaluate(String expression, MathContext mc) throws IllegalArgumentException {
+		return compile(expression).evaluate(mc);
+	}
+
+	// uncached, for benchmarks comparing program variants
+	static CompiledExpression compileUncached(String expression, boolean optimize) {
+		String key = normalize(expression);
+		Parse parse = new Parse();
+		if (!parse(key, false, parse)) throw parse.failure().toException();
+		return new CompiledExpression(key, parse.rpn, optimize);
+	}
+
+	/**
+	 * Number of interpreted evaluations after which an expression is compiled to JVM bytecode, so
+	 * formulas evaluated millions of times skip the interpreter's per-opcode dispatch. Zero compiles
+	 * after the first evaluation; a negative value turns the bytecode backend off. Defaults to
+	 * {@value #DEFAULT_JIT_THRESHOLD}. Runtimes that cannot define classes, such as Android's,
+	 * always interpret.
+	 */
+	public static void setJitThreshold(int evaluations) { jitThreshold = evaluations; }
+	public static int getJitThreshold() { return jitThreshold; }
+
+	public static long cacheHits() { return CACHE.hits(); }
+	public static long cacheMisses() { return CACHE.misses(); }
+	public static long cacheEvictions() { return CACHE.evictions(); }
+	public static void clearCache() { CACHE.clear(); }
+
+	// identifiers (including variable names) are case-insensitive in the tokenizer, so folding case here cannot change meaning
+	private static String normalize(String expression) {
+		return expression.trim().toLowerCase(Locale.US);
+	}
+
+	// what trim() removed from the front, to map offsets in the normalized text back
+	private static int leadingWhitespace(String expression) {
+		int i = 0;
+		while (i < expression.length() && expression.charAt(i) <= ' ') i++;
+		return i;
+	}
+
+	private static CompiledExpression compile(String key, List<Token> rpn) {
+		long t = EvaluationMetrics.start();
+		CompiledExpression compiled = new CompiledExpression(key, rpn);
+		EvaluationMetrics.stop(Stage.COMPILE, t);
+		return compiled;
+	}
+
+	// operands appear in the program in source order, so the first variable in the text is slot 0
+	private static EvaluationResult firstVariable(String key) {
+		Scanner scanner = new Scanner(key);
+		while (scanner.next() && scanner.type != Type.VAR) {}
+		return EvaluationResult.failure(ErrorCode.UNBOUND_VARIABLE, scanner.start, scanner.name());
+	}
+
+	/** State of one parse: the program, or the first error found; recovered parens count either way. */
+	private static final class Parse {
+		final List<Token> rpn = new ArrayList<>();
+		ErrorCode error;
+		int offset;
+		String detail;
+		int autoClosed;
+		// first operand written straight after another, the usual cause of a bad expression
+		int juxtaposed = -1;
+
+		boolean fail(ErrorCode error, int offset, String detail) {
+			this.error = error;
+			this.offset = offset;
+			this.detail = detail;
+			return false;
+		}
+
+		EvaluationResult failure() {
+			return EvaluationResult.failure(error, offset, detail);
+		}
+	}
+
+	/**
+	 * Tokenizes, converts and checks {@code key}, reporting errors in the order the stages meet
+	 * them: scanning, then parentheses, then operands. {@code autoClose} closes any parentheses
+	 * left open instead of failing.
+	 */
+	private static boolean parse(String key, boolean autoClose, Parse parse) {
+		long t = EvaluationMetrics.start();
+		Scanner scanner = new Scanner(key);
+		List<Token> tokens = tokenize(scanner);
+		EvaluationMetrics.stop(Stage.TOKENIZE, t);
+		if (scanner.error != null) return parse.fail(scanner.error, scanner.start, scanner.detail);
+		EvaluationMetrics.tokens(tokens.size());
+		t = EvaluationMetrics.start();
+		boolean ok = toRpn(tokens, autoClose, parse) && validate(parse, key.length());
+		EvaluationMetrics.stop(Stage.TO_RPN, t);
+		return ok;
+	}
+
+	// the operand count check CompiledExpression relies on, with the offset of the token at fault
+	private static boolean validate(Parse parse, int length) {
+		int depth = 0;
+		for (Token t : parse.rpn) {
+			int op = t.type == Type.FUNC || t.type == Type.OP || t.type == Type.FACT ? t.opcode : Opcodes.CONST;
+			if (op < 0) return parse.fail(ErrorCode.UNKNOWN_FUNCTION, t.start, t.text);
+			int arity = Opcodes.arity(op);
+			if (depth < arity) return parse.fail(ErrorCode.STACK_UNDERFLOW, t.start, null);
+			depth = depth - arity + 1;
+		}
+		if (depth != 1) return parse.fail(ErrorCode.BAD_EXPRESSION, parse.juxtaposed >= 0 ? parse.juxtaposed : length, null);
+		return true;
+	}
+
+	enum Type { NUMBER, OP, LPAREN, RPAREN, FUNC, FACT, CONST, VAR }
+
+	static final class Token {
+		final Type type;
+		/** Name of a CONST, VAR or unknown FUNC; null where {@link #opcode} or {@link #value} says it all. */
+		final String text;
+		final double value;
+		/** Opcode of an OP, FUNC or FACT, -1 otherwise. */
+		final int opcode;
+		/** Source span; a NUMBER's literal text is cut from it only when decimal evaluation needs it. */
+		final int start;
+		final int end;
+
+		Token(Type type, String text, double value, int opcode, int start, int end) {
+			this.type = type;
+			this.text = text;
+			this.value = value;
+			this.opcode = opcode;
+			this.start = start;
+			this.end = end;
+		}
+	}
+
+	// variables seen are looked up linearly, which stays cheaper than allocating for the handful a formula has
+	private static final int MAX_REUSED_NAMES = 16;
+
+	static List<Token> tokenize(CharSequence s) throws IllegalArgumentException {
+		Scanner scanner = new Scanner(s);
+		List<Token> out = tokenize(scanner);
+		if (scanner.error != null) throw EvaluationResult.failure(scanner.error, scanner.start, scanner.detail).toException();
+		return out;
+	}
+
+	// tokens up to the end of the input or the scanner's first error
+	private static List<Token> tokenize(Scanner scanner) {
+		List<Token> out = new ArrayList<>();
+		List<String> names = new ArrayList<>();
+		while (scanner.next()) {
+			String text = null;
+			switch (scanner.type) {
+				case CONST:
+					text = scanner.value == Math.PI ? "pi" : "e";
+					break;
+				case VAR:
+					for (int i = 0; i < names.size() && text == null; i++) {
+						if (scanner.nameEquals(names.get(i))) text = names.get(i);
+					}
+					if (text == null) {
+						text = scanner.name();
+						if (names.size() < MAX_REUSED_NAMES) names.add(text);
+					}
+					break;
+				case FUNC:
+					if (scanner.opcode < 0) text = scanner.name();
+					break;
+				default:
+					break;
+			}
+			out.add(new Token(scanner.type, text, scanner.value, scanner.opcode, scanner.start, scanner.end));
+		}
+		return out;
+	}
+
+	static boolean isIdentifierPart(char c) {
+		return Character.isLetterOrDigit(c) || c == '_';
+	}
+
+	private static boolean toRpn(List<Token> tokens, boolean autoClose, Parse parse) {
+		List<Token> output = parse.rpn;
+		Deque<Token> stack = new ArrayDeque<>();
+		Token prev = null;
+		for (Token t : tokens) {
+			if (parse.juxtaposed < 0 && prev != null && endsOperand(prev.type) && startsOperand(t.type)) parse.juxtaposed = t.start;
+			switch (t.type) {
+				case NUMBER:
+				case CONST:
+				case VAR:
+					output.add(t);
+					break;
+				case FUNC:
+					stack.push(t);
+					break;
+				case OP:
+					int op = t.opcode;
+					// handle unary minus
+					if (op == Opcodes.SUB && (prev == null || prev.type == Type.OP || prev.type == Type.LPAREN)) {
+						// represent unary minus as function neg(x)
+						stack.push(new Token(Type.FUNC, null, 0.0, Opcodes.NEG, t.start, t.end));
+						break;
+					}
+					while (!stack.isEmpty() && stack.peek().type == Type.OP) {
+						int top = stack.peek().opcode;
+						boolean right = Opcodes.rightAssociative(op);
+						if ((!right && Opcodes.precedence(op) <= Opcodes.precedence(top)) || (right && Opcodes.precedence(op) < Opcodes.precedence(top))) {
+							output.add(stack.pop());
+						} else break;
+					}
+					stack.push(t);
+					break;
+				case LPAREN:
+					stack.push(t);
+					break;
+				case RPAREN:
+					while (!stack.isEmpty() && stack.peek().type != Type.LPAREN) {
+						output.add(stack.pop());
+					}
+					if (stack.isEmpty()) return parse.fail(ErrorCode.MISMATCHED_PARENS, t.start, null);
+					stack.pop(); // pop LPAREN
+					// if top is a function, pop it too
+					if (!stack.isEmpty() && stack.peek().type == Type.FUNC) output.add(stack.pop());
+					break;
+				case FACT:
+					// factorial is postfix - output as op
+					output.add(t);
+					break;
+			}
+			prev = t;
+		}
+		while (!stack.isEmpty()) {
+			Token t = stack.pop();
+			if (t.type == Type.LPAREN) {
+				if (!autoClose) return parse.fail(ErrorCode.MISMATCHED_PARENS, t.start, null);
+				// as if closed here: a function waiting on it is popped next
+				parse.autoClosed++;
+				continue;
+			}
+			output.add(t);
+		}
+		return true;
+	}
+
+	private static boolean startsOperand(Type t) {
+		return t == Type.NUMBER || t == Type.CONST || t == Type.VAR || t == Type.FUNC || t == Type.LPAREN;
+	}
+
+	private static boolean endsOperand(Type t) {
+		return t == Type.NUMBER || t == Type.CONST || t == Type.VAR || t == Type.RPAREN || t == Type.FACT;
+	}
+
+	// n! for every n whose factorial is finite in double; 171! overflows
+	private static final int MAX_FACTORIAL = 170;
+	private static final double[] FACTORIALS = new double[MAX_FACTORIAL + 1];
+	static {
+		FACTORIALS[0] = 1.0;
+		for (int i = 1; i <= MAX_FACTORIAL; i++) FACTORIALS[i] = FACTORIALS[i - 1] * i;
+	}
+
+	// Lanczos approximation, g = 7, n = 9
+	private static final int LANCZOS_G = 7;
+	private static final double LANCZOS_C0 = 0.99999999999980993;
+	private static final double[] LANCZOS = {
+		676.5203681218851,
+		-1259.1392167224028,
+		771.32342877765313,
+		-176.61502916214059,
+		12.507343278686905,
+		-0.13857109526572012,
+		9.9843695780195716e-6,
+		1.5056327351493116e-7
+	};
+	private static final double SQRT_TWO_PI = Math.sqrt(2 * Math.PI);
+	private static final double LOG_SQRT_TWO_PI = Math.log(SQRT_TWO_PI);
+	private static final double LOG_PI = Math.log(Math.PI);
+	// gamma(z) is above Double.MAX_VALUE from here on
+	private static final double GAMMA_OVERFLOW = 171.62437695630272;
+	// t^(z + 0.5) in the direct Lanczos form overflows a little past this, well before gamma does
+	private static final double LANCZOS_POW_LIMIT = 140;
+
+	/**
+	 * x! for any real x: a table lookup for integers 0..170, +Infinity for larger integers, NaN for
+	 * negative integers (the poles of gamma), and gamma(x + 1) otherwise.
+	 */
+	static double factorial(double x) {
+		if (x != x) return Double.NaN;
+		if (Math.abs(x - Math.rint(x)) < 1e-12) {
+			double n = Math.rint(x);
+			if (n < 0) return Double.NaN;
+			return n > MAX_FACTORIAL ? Double.POSITIVE_INFINITY : FACTORIALS[(int) n];
+		}
+		return gamma(x + 1.0);
+	}
+
+	static double gamma(double z) {
+		if (z < 0.5) {
+			// Euler's reflection formula; 1 - z >= 0.5 so no further recursion is needed
+			return Math.PI / (Math.sin(Math.PI * z) * lanczos(1 - z));
+		}
+		if (z > GAMMA_OVERFLOW) return Double.POSITIVE_INFINITY;
+		if (z > LANCZOS_POW_LIMIT) return Math.exp(lanczosLog(z));
+		return lanczos(z);
+	}
+
+	/** log |gamma(z)|, finite well past the point where gamma itself overflows. */
+	static double lgamma(double z) {
+		if (z != z) return Double.NaN;
+		if (z <= 0 && z == Math.rint(z)) return Double.POSITIVE_INFINITY;
+		if (z < 0.5) {
+			return LOG_PI - Math.log(Math.abs(Math.sin(Math.PI * z))) - lanczosLog(1 - z);
+		}
+		return lanczosLog(z);
+	}
+
+	private static double lanczosSum(double z) {
+		double x = LANCZOS_C0;
+		for (int i = 0; i < LANCZOS.length; i++) {
+			x += LANCZOS[i] / (z + i + 1);
+		}
+		return x;
+	}
+
+	// both expect z >= 0.5
+	private static double lanczos(double z) {
+		z -= 1;
+		double t = z + LANCZOS_G + 0.5;
+		return SQRT_TWO_PI * Math.pow(t, z + 0.5) * Math.exp(-t) * lanczosSum(z);
+	}
+
+	private static double lanczosLog(double z) {
+		z -= 1;
+		double t = z + LANCZOS_G + 0.5;
+		return LOG_SQRT_TWO_PI + (z + 0.5) * Math.log(t) - t + Math.log(lanczosSum(z));
+	}
+}
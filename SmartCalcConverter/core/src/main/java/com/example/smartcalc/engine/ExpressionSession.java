@@ -0,0 +1,349 @@
+package com.example.smartcalc.engine;
+
+import com.example.smartcalc.engine.EvaluationResult.ErrorCode;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * An expression being typed one token at a time. Each character advances a shunting-yard parser
+ * whose output is evaluated immediately, so the operand and operator stacks always reflect the
+ * text so far; {@link #currentValue()} only has to close off what is still open on the operator
+ * stack. Both stacks are persistent linked lists and every character keeps a snapshot of them,
+ * which makes {@link #backspace()} a pop instead of a re-parse.
+ * <p>
+ * Values and errors match {@link ExpressionEvaluator#evaluate(String)} and
+ * {@link ExpressionEvaluator#tryEvaluate(String)} for the same text, aside from control characters
+ * that {@code trim()} would strip and letters whose lower case is longer. Numbers, scientific
+ * notation included, are read by the evaluator's own scanner, and errors rank as the evaluator
+ * meets them: the first bad character or number anywhere, then the first unmatched parenthesis,
+ * then the first operator without operands in program order, then a bad expression, then the first
+ * variable, as there are no values to bind. Errors are kept in the frames as
+ * {@link EvaluationResult}s rather than thrown, so a preview of partial input through
+ * {@link #tryCurrentValue()} never constructs an exception. Not thread-safe.
+ */
+public final class ExpressionSession {
+	private static final int NONE = 0;
+	private static final int OPERAND = 1;
+	private static final int OPERATOR = 2;
+	private static final int LPAREN = 3;
+	private static final int RPAREN = 4;
+	private static final int FUNC = 5;
+	private static final int FACT = 6;
+
+	private static final int PENDING_NONE = 0;
+	private static final int PENDING_NUMBER = 1;
+	private static final int PENDING_NAME = 2;
+	// a name that is neither built in nor a constant, then whitespace: a '(' next makes it a function
+	private static final int PENDING_NAME_SPACE = 3;
+
+	// error ranks, in the order the evaluator's stages meet them; a higher rank replaces a lower one
+	private static final int OPERANDS = 1;
+	private static final int PARENS = 2;
+	private static final int SCAN = 3;
+
+	private final StringBuilder text = new StringBuilder();
+	// frames.get(i) is the parser state after the first i characters
+	private final List<Frame> frames = new ArrayList<>();
+
+	public ExpressionSession() {
+		frames.add(Frame.EMPTY);
+	}
+
+	public void append(String token) {
+		for (int i = 0; i < token.length(); i++) {
+			char c = token.charAt(i);
+			frames.add(step(top(), c, text.length()));
+			text.append(c);
+		}
+	}
+
+	public void backspace() {
+		if (text.length() == 0) return;
+		text.setLength(text.length() - 1);
+		frames.remove(frames.size() - 1);
+	}
+
+	public void clear() {
+		text.setLength(0);
+		frames.clear();
+		frames.add(Frame.EMPTY);
+	}
+
+	public int length() { return text.length(); }
+
+	public CharSequence text() { return text; }
+
+	/** Value of the text typed so far; throws the same errors as {@link ExpressionEvaluator#evaluate(String)}. */
+	public double currentValue() throws IllegalArgumentException {
+		EvaluationResult result = result(false);
+		if (!result.isOk()) throw result.toException();
+		return result.value;
+	}
+
+	/**
+	 * Value of the text typed so far with any open parentheses closed, so {@code sin(pi/2} reads 1;
+	 * otherwise the error and its offset in {@link #text()}. Never throws.
+	 */
+	public EvaluationResult tryCurrentValue() {
+		return result(true);
+	}
+
+	private EvaluationResult result(boolean autoClose) {
+		Frame f = top();
+		int end = text.length();
+		while (f.pending != PENDING_NONE && f.rank < SCAN) {
+			f = f.pending == PENDING_NUMBER ? endNumber(f, end) : endName(f, f.pending == PENDING_NAME ? end : f.pendingEnd, (char) 0);
+		}
+		if (f.rank >= PARENS) return f.error;
+		if (!autoClose) {
+			// the evaluator finds the innermost unclosed parenthesis before checking any operands
+			for (Ops ops = f.ops; ops != null; ops = ops.next) {
+				if (ops.kind == LPAREN) return EvaluationResult.failure(ErrorCode.MISMATCHED_PARENS, ops.offset, null);
+			}
+		}
+		Values values = f.values;
+		int closed = 0;
+		for (Ops ops = f.ops; ops != null; ops = ops.next) {
+			if (ops.kind == LPAREN) {
+				// the function waiting on it, if any, is next
+				closed++;
+				continue;
+			}
+			values = apply(values, ops.opcode);
+			if (values == null) f = reject(f, ops);
+		}
+		if (f.error != null) return f.error;
+		if (values == null || values.next != null) {
+			return EvaluationResult.failure(ErrorCode.BAD_EXPRESSION, f.juxtaposed >= 0 ? f.juxtaposed : trimmedEnd(), null);
+		}
+		if (f.variable >= 0) return EvaluationResult.failure(ErrorCode.UNBOUND_VARIABLE, f.variable, name(f.variable));
+		return EvaluationResult.of(values.value, closed);
+	}
+
+	private Frame top() { return frames.get(frames.size() - 1); }
+
+	private Frame step(Frame f, char c, int index) {
+		if (f.rank == SCAN) return f;
+		switch (f.pending) {
+			case PENDING_NUMBER:
+				if (continuesNumber(f.pendingStart, index, c)) return f;
+				// what the number left unread is stepped again, so c may meet a new pending token
+				return step(endNumber(f, index), c, index);
+			case PENDING_NAME:
+				if (ExpressionEvaluator.isIdentifierPart(c)) return f;
+				if (Character.isWhitespace(c) && isVariableOrUnknown(f.pendingStart, index)) {
+					return f.withPending(PENDING_NAME_SPACE, f.pendingStart, index);
+				}
+				f = endName(f, index, c);
+				break;
+			case PENDING_NAME_SPACE:
+				if (Character.isWhitespace(c)) return f;
+				f = endName(f, f.pendingEnd, c);
+				break;
+			default:
+				break;
+		}
+		if (Character.isWhitespace(c)) return f;
+		if (isDigit(c) || c == '.') return f.withPending(PENDING_NUMBER, index, -1);
+		if (Character.isLetter(c)) return f.withPending(PENDING_NAME, index, -1);
+		int op = Opcodes.binary(c);
+		if (op < 0 && c != '(' && c != ')' && c != '!') {
+			// the evaluator lower-cases its input first
+			return f.fail(SCAN, ErrorCode.UNEXPECTED_CHAR, index, String.valueOf(c).toLowerCase(Locale.US));
+		}
+		// after an unmatched parenthesis only scanning errors can still change the outcome
+		if (f.rank >= PARENS) return f;
+		switch (c) {
+			case '(':
+				return f.parse(f.values, new Ops(LPAREN, 0, index, f.ops), LPAREN, index);
+			case ')': {
+				Values values = f.values;
+				Ops ops = f.ops;
+				while (ops != null && ops.kind != LPAREN) {
+					values = apply(values, ops.opcode);
+					if (values == null) f = reject(f, ops);
+					ops = ops.next;
+				}
+				if (ops == null) return f.fail(PARENS, ErrorCode.MISMATCHED_PARENS, index, null);
+				ops = ops.next;
+				if (ops != null && ops.kind == FUNC) {
+					values = apply(values, ops.opcode);
+					if (values == null) f = reject(f, ops);
+					ops = ops.next;
+				}
+				return f.parse(values, ops, RPAREN, -1);
+			}
+			case '!': {
+				Values values = apply(f.values, Opcodes.FACT);
+				if (values == null) f = f.fail(OPERANDS, ErrorCode.STACK_UNDERFLOW, index, null);
+				return f.parse(values, f.ops, FACT, -1);
+			}
+			default:
+				break;
+		}
+		if (op == Opcodes.SUB && (f.last == NONE || f.last == OPERATOR || f.last == LPAREN)) {
+			return f.parse(f.values, new Ops(FUNC, Opcodes.NEG, index, f.ops), OPERATOR, -1);
+		}
+		Values values = f.values;
+		Ops ops = f.ops;
+		while (ops != null && ops.kind == OPERATOR) {
+			int top = ops.opcode;
+			boolean pop = Opcodes.rightAssociative(op)
+				? Opcodes.precedence(op) < Opcodes.precedence(top)
+				: Opcodes.precedence(op) <= Opcodes.precedence(top);
+			if (!pop) break;
+			values = apply(values, top);
+			if (values == null) f = reject(f, ops);
+			ops = ops.next;
+		}
+		return f.parse(values, new Ops(OPERATOR, op, index, ops), OPERATOR, -1);
+	}
+
+	/** Whether {@code c} may extend the number typed from {@code start}; the scanner decides how much of it is one. */
+	private boolean continuesNumber(int start, int index, char c) {
+		int mark = index - 1;
+		while (mark >= start && text.charAt(mark) != 'e' && text.charAt(mark) != 'E') mark--;
+		if (mark < start) return isDigit(c) || c == '.' || c == 'e' || c == 'E';
+		return isDigit(c) || (c == '+' || c == '-') && mark == index - 1;
+	}
+
+	/** Reads the number typed from {@code f.pendingStart} up to {@code end} and steps again whatever follows it. */
+	private Frame endNumber(Frame f, int end) {
+		int start = f.pendingStart;
+		Scanner scanner = new Scanner(text.subSequence(start, end));
+		if (!scanner.next()) return f.fail(SCAN, scanner.error, start + scanner.start, scanner.detail);
+		if (f.rank >= PARENS) f = f.parse(f.values, f.ops, f.last, -1);
+		else f = f.parse(new Values(scanner.value, f.values), f.ops, OPERAND, start);
+		// an 'e' with no exponent after it, as in 2e+x, is the constant
+		for (int i = start + scanner.end; i < end; i++) f = step(f, text.charAt(i), i);
+		return f;
+	}
+
+	/** Completes the name {@code text[f.pendingStart, end)}; {@code next} is the first non-space character after it. */
+	private Frame endName(Frame f, int end, char next) {
+		int start = f.pendingStart;
+		String name = text.substring(start, end).toLowerCase(Locale.US);
+		if (f.rank >= PARENS) return f.parse(f.values, f.ops, f.last, -1);
+		if (name.equals("pi")) return f.parse(new Values(Math.PI, f.values), f.ops, OPERAND, start);
+		if (name.equals("e")) return f.parse(new Values(Math.E, f.values), f.ops, OPERAND, start);
+		int op = Opcodes.function(name);
+		// an unknown function is only an error once the program reaches it, as in the evaluator
+		if (op >= 0 || next == '(') return f.parse(f.values, new Ops(FUNC, op, start, f.ops), FUNC, start);
+		// a variable: an operand for parsing, reported only if nothing else is wrong
+		return f.parse(new Values(Double.NaN, f.values), f.ops, OPERAND, start).withVariable(start);
+	}
+
+	private boolean isVariableOrUnknown(int start, int end) {
+		String name = text.substring(start, end).toLowerCase(Locale.US);
+		return !name.equals("pi") && !name.equals("e") && Opcodes.function(name) < 0;
+	}
+
+	/** The error the evaluator reports for an instruction that cannot run: an unknown function, or too few operands. */
+	private Frame reject(Frame f, Ops ops) {
+		if (ops.opcode < 0) return f.fail(OPERANDS, ErrorCode.UNKNOWN_FUNCTION, ops.offset, name(ops.offset));
+		return f.fail(OPERANDS, ErrorCode.STACK_UNDERFLOW, ops.offset, null);
+	}
+
+	/** The name starting at {@code start}, lower-cased. */
+	private String name(int start) {
+		int end = start;
+		while (end < text.length() && ExpressionEvaluator.isIdentifierPart(text.charAt(end))) end++;
+		return text.substring(start, end).toLowerCase(Locale.US);
+	}
+
+	// the evaluator reports a bad expression at the end of its trimmed input, mapped back to ours
+	private int trimmedEnd() {
+		int end = text.length();
+		while (end > 0 && text.charAt(end - 1) <= ' ') end--;
+		return end > 0 ? end : text.length();
+	}
+
+	private static boolean isDigit(char c) {
+		return c >= '0' && c <= '9';
+	}
+
+	/** Applies {@code op} to the top of {@code values}; null if there are too few operands or {@code op} is unknown. */
+	private static Values apply(Values values, int op) {
+		if (op < 0) return null;
+		if (Opcodes.arity(op) == 2) {
+			if (values == null || values.next == null) return null;
+			return new Values(Opcodes.apply(op, values.next.value, values.value), values.next.next);
+		}
+		if (values == null) return null;
+		return new Values(Opcodes.apply(op, values.value), values.next);
+	}
+
+	private static final class Values {
+		final double value;
+		final Values next;
+		Values(double value, Values next) { this.value = value; this.next = next; }
+	}
+
+	private static final class Ops {
+		final int kind;
+		final int opcode;
+		// where the operator, function or parenthesis was typed, for error offsets
+		final int offset;
+		final Ops next;
+		Ops(int kind, int opcode, int offset, Ops next) { this.kind = kind; this.opcode = opcode; this.offset = offset; this.next = next; }
+	}
+
+	private static final class Frame {
+		static final Frame EMPTY = new Frame(null, null, NONE, PENDING_NONE, -1, -1, null, 0, -1, -1);
+
+		final Values values;
+		final Ops ops;
+		// kind of the last complete token, for telling unary from binary minus
+		final int last;
+		final int pending;
+		final int pendingStart;
+		// end of a PENDING_NAME_SPACE name
+		final int pendingEnd;
+		// the highest-ranked error so far and its rank; parsing goes on after an OPERANDS error
+		final EvaluationResult error;
+		final int rank;
+		// first operand written straight after another, where a bad expression is reported
+		final int juxtaposed;
+		// offset of the first variable, or -1
+		final int variable;
+
+		Frame(Values values, Ops ops, int last, int pending, int pendingStart, int pendingEnd,
+				EvaluationResult error, int rank, int juxtaposed, int variable) {
+			this.values = values;
+			this.ops = ops;
+			this.last = last;
+			this.pending = pending;
+			this.pendingStart = pendingStart;
+			this.pendingEnd = pendingEnd;
+			this.error = error;
+			this.rank = rank;
+			this.juxtaposed = juxtaposed;
+			this.variable = variable;
+		}
+
+		/** The state after a complete token; {@code operandStart} is where it starts if it begins an operand, else -1. */
+		Frame parse(Values values, Ops ops, int last, int operandStart) {
+			int j = juxtaposed;
+			if (j < 0 && operandStart >= 0 && (this.last == OPERAND || this.last == RPAREN || this.last == FACT)) j = operandStart;
+			return new Frame(values, ops, last, PENDING_NONE, -1, -1, error, rank, j, variable);
+		}
+
+		Frame withPending(int kind, int start, int end) {
+			return new Frame(values, ops, last, kind, start, end, error, rank, juxtaposed, variable);
+		}
+
+		Frame withVariable(int offset) {
+			if (variable >= 0) return this;
+			return new Frame(values, ops, last, pending, pendingStart, pendingEnd, error, rank, juxtaposed, offset);
+		}
+
+		/** Records an error of {@code rank} unless one of the same or a higher rank came first. */
+		Frame fail(int rank, ErrorCode code, int offset, String detail) {
+			if (rank <= this.rank) return this;
+			EvaluationResult failure = EvaluationResult.failure(code, offset, detail);
+			return new Frame(values, ops, last, pending, pendingStart, pendingEnd, failure, rank, juxtaposed, variable);
+		}
+	}
+}
@@ -0,0 +1,6 @@
+package com.example.smartcalc.engine;
+
+/** A program compiled to JVM bytecode by {@link BytecodeCompiler}; {@code values} as for {@link CompiledExpression#evaluate(double...)}. */
+interface Formula {
+	double apply(double[] values);
+}
@@ -0,0 +1,123 @@
+package com.example.smartcalc.engine;
+
+/**
+ * Instruction set of a {@link CompiledExpression}. Each instruction is one {@code int}: the opcode
+ * in the low byte and, for {@link #CONST}, {@link #VAR}, {@link #LOAD} and {@link #STORE}, an index
+ * into the constant pool, the variable list or the temp slots in the remaining bits.
+ */
+final class Opcodes {
+	private Opcodes() {}
+
+	static final int CONST = 0;
+	static final int ADD = 1;
+	static final int SUB = 2;
+	static final int MUL = 3;
+	static final int DIV = 4;
+	static final int MOD = 5;
+	static final int POW = 6;
+	static final int NEG = 7;
+	static final int SIN = 8;
+	static final int COS = 9;
+	static final int TAN = 10;
+	static final int ASIN = 11;
+	static final int ACOS = 12;
+	static final int ATAN = 13;
+	static final int LN = 14;
+	static final int LOG = 15;
+	static final int SQRT = 16;
+	static final int INV = 17;
+	static final int FACT = 18;
+	static final int VAR = 19;
+	static final int LGAMMA = 20;
+	/** Pushes a temp slot; temps are written only by {@link Optimizer} output. */
+	static final int LOAD = 21;
+	/** Copies the top of the stack into a temp slot, leaving it in place. */
+	static final int STORE = 22;
+
+	static int op(int insn) { return insn & 0xFF; }
+	static int arg(int insn) { return insn >>> 8; }
+	static int insn(int op, int arg) { return op | (arg << 8); }
+
+	/** Number of operands popped; every instruction pushes exactly one result. */
+	static int arity(int op) {
+		if (op == CONST || op == VAR || op == LOAD) return 0;
+		return op <= POW ? 2 : 1;
+	}
+
+	static int precedence(int op) {
+		if (op == POW) return 3;
+		return op >= MUL ? 2 : 1;
+	}
+
+	static boolean rightAssociative(int op) { return op == POW; }
+
+	static int binary(String text) {
+		return text.length() == 1 ? binary(text.charAt(0)) : -1;
+	}
+
+	static int binary(char c) {
+		switch (c) {
+			case '+': return ADD;
+			case '-': return SUB;
+			case '*': return MUL;
+			case '/': return DIV;
+			case '%': return MOD;
+			case '^': return POW;
+			default: return -1;
+		}
+	}
+
+	private static final String[] FUNCTION_NAMES = { "sin", "cos", "tan", "asin", "acos", "atan", "ln", "log", "sqrt", "inv", "neg", "lgamma" };
+	private static final int[] FUNCTION_OPS = { SIN, COS, TAN, ASIN, ACOS, ATAN, LN, LOG, SQRT, INV, NEG, LGAMMA };
+
+	static int function(String name) {
+		return function(name, 0, name.length());
+	}
+
+	/** The function named by {@code s[start, end)}, ignoring case, without extracting it. */
+	static int function(CharSequence s, int start, int end) {
+		outer:
+		for (int f = 0; f < FUNCTION_NAMES.length; f++) {
+			String name = FUNCTION_NAMES[f];
+			if (name.length() != end - start) continue;
+			for (int i = 0; i < name.length(); i++) {
+				if (Character.toLowerCase(s.charAt(start + i)) != name.charAt(i)) continue outer;
+			}
+			return FUNCTION_OPS[f];
+		}
+		return -1;
+	}
+
+	/** Scalar semantics of a two-operand instruction, for interpreters that are not on the hot path. */
+	static double apply(int op, double a, double b) {
+		switch (op) {
+			case ADD: return a + b;
+			case SUB: return a - b;
+			case MUL: return a * b;
+			case DIV: return a / b;
+			case MOD: return a % b;
+			case POW: return Math.pow(a, b);
+			default: throw new IllegalStateException("Not a binary op: " + op);
+		}
+	}
+
+	/** Scalar semantics of a one-operand instruction, for interpreters that are not on the hot path. */
+	static double apply(int op, double x) {
+		switch (op) {
+			case NEG: return -x;
+			case SIN: return Math.sin(x);
+			case COS: return Math.cos(x);
+			case TAN: return Math.tan(x);
+			case ASIN: return Math.asin(x);
+			case ACOS: return Math.acos(x);
+			case ATAN: return Math.atan(x);
+			case LN: return Math.log(x);
+			case LOG: return Math.log10(x);
+			case SQRT: return Math.sqrt(x);
+			case INV: return 1.0 / x;
+			case FACT: return ExpressionEvaluator.factorial(x);
+			case LGAMMA: return ExpressionEvaluator.lgamma(x);
+			default: throw new IllegalStateException("Not a unary op: " + op);
+		}
+	}
+}
@@ -0,0 +1,204 @@
+package com.example.smartcalc.engine;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Rewrites a program for double evaluation before it is first run. The RPN is rebuilt as a DAG in
+ * which identical subexpressions share one node; constant subtrees are folded with the same
+ * arithmetic the interpreter uses, and {@code x*1}, {@code 1*x}, {@code x/1}, {@code x^1},
+ * {@code x+0}, {@code 0+x}, {@code x-0} and {@code neg(neg(x))} reduce to {@code x}. The program
+ * is then re-emitted with every shared non-leaf node computed once, kept in a temp slot by
+ * {@link Opcodes#STORE} and reloaded by {@link Opcodes#LOAD}.
+ *
+ * <p>Results are bit-identical to the unoptimized program except that {@code x+0} of a negative
+ * zero gives {@code -0.0} rather than {@code 0.0}. Nothing is reassociated, so {@code 2*pi*r}
+ * folds but {@code 2*r*pi} does not.
+ */
+final class Optimizer {
+	private Optimizer() {}
+
+	static final class Program {
+		final int[] code;
+		final double[] constants;
+		/** Operand stack depth; temps live in the slots after it. */
+		final int maxStack;
+		final int temps;
+
+		Program(int[] code, double[] constants, int maxStack, int temps) {
+			this.code = code;
+			this.constants = constants;
+			this.maxStack = maxStack;
+			this.temps = temps;
+		}
+	}
+
+	// node i: op[i], operands a[i] and b[i] (node ids, or the variable slot in a[i] for VAR), value[i] for CONST
+	private int[] op;
+	private int[] a;
+	private int[] b;
+	private double[] value;
+	private int count;
+	private final Map<Long, Integer> constantNodes = new HashMap<>();
+	private final Map<Long, Integer> nodes = new HashMap<>();
+
+	/** {@code code} must be a well-formed program without temps, as built by {@link CompiledExpression}. */
+	static Program optimize(int[] code, double[] constants) {
+		return new Optimizer().run(code, constants);
+	}
+
+	private Program run(int[] code, double[] constants) {
+		int n = Math.max(1, code.length);
+		op = new int[n];
+		a = new int[n];
+		b = new int[n];
+		value = new double[n];
+		int[] stack = new int[n];
+		int sp = 0;
+		for (int insn : code) {
+			int o = Opcodes.op(insn);
+			switch (o) {
+				case Opcodes.CONST: stack[sp++] = constant(constants[Opcodes.arg(insn)]); break;
+				case Opcodes.VAR: stack[sp++] = intern(Opcodes.VAR, Opcodes.arg(insn), -1); break;
+				default:
+					if (Opcodes.arity(o) == 2) {
+						sp--;
+						stack[sp - 1] = binary(o, stack[sp - 1], stack[sp]);
+					} else {
+						stack[sp - 1] = unary(o, stack[sp - 1]);
+					}
+			}
+		}
+		return emit(stack[0], code.length);
+	}
+
+	private int binary(int o, int x, int y) {
+		if (op[x] == Opcodes.CONST && op[y] == Opcodes.CONST) return constant(Opcodes.apply(o, value[x], value[y]));
+		switch (o) {
+			case Opcodes.ADD:
+				if (isConstant(y, 0)) return x;
+				if (isConstant(x, 0)) return y;
+				break;
+			case Opcodes.SUB:
+				if (isConstant(y, 0)) return x;
+				break;
+			case Opcodes.MUL:
+				if (isConstant(y, 1)) return x;
+				if (isConstant(x, 1)) return y;
+				break;
+			case Opcodes.DIV:
+			case Opcodes.POW:
+				if (isConstant(y, 1)) return x;
+				break;
+		}
+		return intern(o, x, y);
+	}
+
+	private int unary(int o, int x) {
+		if (op[x] == Opcodes.CONST) return constant(Opcodes.apply(o, value[x]));
+		if (o == Opcodes.NEG && op[x] == Opcodes.NEG) return a[x];
+		return intern(o, x, -1);
+	}
+
+	private boolean isConstant(int x, double v) {
+		return op[x] == Opcodes.CONST && value[x] == v;
+	}
+
+	// constants are keyed by bits, so 0.0 and -0.0 stay distinct and NaN matches itself
+	private int constant(double v) {
+		Integer id = constantNodes.get(Double.doubleToLongBits(v));
+		if (id != null) return id;
+		int i = add(Opcodes.CONST, -1, -1);
+		value[i] = v;
+		constantNodes.put(Double.doubleToLongBits(v), i);
+		return i;
+	}
+
+	// node ids are below code.length, so 28 bits each leave room for the op in the key
+	private int intern(int o, int x, int y) {
+		long key = o | (long) x << 8 | (long) (y + 1) << 36;
+		Integer id = nodes.get(key);
+		if (id != null) return id;
+		int i = add(o, x, y);
+		nodes.put(key, i);
+		return i;
+	}
+
+	// each source instruction adds at most one node, so the arrays never grow
+	private int add(int o, int x, int y) {
+		op[count] = o;
+		a[count] = x;
+		b[count] = y;
+		return count++;
+	}
+
+	private boolean isLeaf(int x) {
+		return op[x] == Opcodes.CONST || op[x] == Opcodes.VAR;
+	}
+
+	private Program emit(int root, int length) {
+		// operands always have lower ids than their users, so one backward sweep counts every reference
+		int[] uses = new int[count];
+		uses[root] = 1;
+		for (int i = count - 1; i >= 0; i--) {
+			if (uses[i] == 0 || isLeaf(i)) continue;
+			uses[a[i]]++;
+			if (b[i] >= 0) uses[b[i]]++;
+		}
+		int[] slot = new int[count];
+		Arrays.fill(slot, -1);
+		int[] pool = new int[count];
+		Arrays.fill(pool, -1);
+		double[] constants = new double[count];
+		int nConst = 0;
+		int temps = 0;
+		// every instruction but a STORE stands for the root or one operand reference, of which the source had length - 1
+		int[] code = new int[length + count];
+		int pc = 0;
+		// explicit post-order walk: entries are node << 1, with the low bit set once the operands are emitted
+		int[] work = new int[16];
+		int top = 0;
+		work[top++] = root << 1;
+		while (top > 0) {
+			int e = work[--top];
+			int x = e >>> 1;
+			if ((e & 1) == 0 && slot[x] >= 0) {
+				code[pc++] = Opcodes.insn(Opcodes.LOAD, slot[x]);
+				continue;
+			}
+			if (op[x] == Opcodes.CONST) {
+				if (pool[x] < 0) {
+					constants[nConst] = value[x];
+					pool[x] = nConst++;
+				}
+				code[pc++] = Opcodes.insn(Opcodes.CONST, pool[x]);
+				continue;
+			}
+			if (op[x] == Opcodes.VAR) {
+				code[pc++] = Opcodes.insn(Opcodes.VAR, a[x]);
+				continue;
+			}
+			if ((e & 1) == 0) {
+				if (top + 3 > work.length) work = Arrays.copyOf(work, work.length * 2);
+				work[top++] = e | 1;
+				if (b[x] >= 0) work[top++] = b[x] << 1;
+				work[top++] = a[x] << 1;
+				continue;
+			}
+			code[pc++] = op[x];
+			if (uses[x] > 1) {
+				slot[x] = temps++;
+				code[pc++] = Opcodes.insn(Opcodes.STORE, slot[x]);
+			}
+		}
+		code = Arrays.copyOf(code, pc);
+		int depth = 0;
+		int max = 0;
+		for (int insn : code) {
+			depth = depth - Opcodes.arity(Opcodes.op(insn)) + 1;
+			if (depth > max) max = depth;
+		}
+		return new Program(code, Arrays.copyOf(constants, nConst), max, temps);
+	}
+}
@@ -0,0 +1,100 @@
+package com.example.smartcalc.engine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Splits a batch evaluation across threads. Rows are independent and every row goes through the
+ * same sequence of double operations whichever chunk it lands in, so the output is bit-for-bit
+ * identical to {@link ExpressionEvaluator#evaluateBatch}.
+ */
+public final class ParallelEvaluator {
+	public static final int DEFAULT_GRAIN = 16_384;
+	public static final int DEFAULT_THRESHOLD = 65_536;
+
+	private final Executor executor;
+	private final int grain;
+	private final int threshold;
+
+	public ParallelEvaluator() {
+		this(ForkJoinPool.commonPool(), DEFAULT_GRAIN, DEFAULT_THRESHOLD);
+	}
+
+	/**
+	 * @param executor  pool to run chunks on; a {@link ForkJoinPool} gets recursive splitting,
+	 *                  any other executor gets one task per chunk
+	 * @param grain     rows per chunk
+	 * @param threshold inputs with fewer rows than this run serially on the calling thread
+	 */
+	public ParallelEvaluator(Executor executor, int grain, int threshold) {
+		if (executor == null) throw new IllegalArgumentException("null executor");
+		if (grain <= 0) throw new IllegalArgumentException("grain must be positive");
+		this.executor = executor;
+		this.grain = grain;
+		this.threshold = threshold;
+	}
+
+	public void evaluateBatch(CompiledExpression expression, Map<String, double[]> columns, double[] out) throws IllegalArgumentException {
+		double[][] bound = expression.bindColumns(columns, out.length);
+		int rows = out.length;
+		if (rows < threshold || rows <= grain) {
+			expression.evaluateBatch(bound, out, 0, rows);
+		} else if (executor instanceof ForkJoinPool) {
+			((ForkJoinPool) executor).invoke(new Chunk(expression, bound, out, 0, rows, grain));
+		} else {
+			runChunks(expression, bound, out, rows);
+		}
+	}
+
+	private void runChunks(CompiledExpression expression, double[][] bound, double[] out, int rows) {
+		List<CompletableFuture<Void>> parts = new ArrayList<>();
+		for (int from = 0; from < rows; from += grain) {
+			final int lo = from;
+			final int hi = Math.min(rows, from + grain);
+			parts.add(CompletableFuture.runAsync(() -> expression.evaluateBatch(bound, out, lo, hi), executor));
+		}
+		try {
+			CompletableFuture.allOf(parts.toArray(new CompletableFuture<?>[0])).join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+			throw e;
+		}
+	}
+
+	private static final class Chunk extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final CompiledExpression expression;
+		private final double[][] columns;
+		private final double[] out;
+		private final int from;
+		private final int to;
+		private final int grain;
+
+		Chunk(CompiledExpression expression, double[][] columns, double[] out, int from, int to, int grain) {
+			this.expression = expression;
+			this.columns = columns;
+			this.out = out;
+			this.from = from;
+			this.to = to;
+			this.grain = grain;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= grain) {
+				expression.evaluateBatch(columns, out, from, to);
+				return;
+			}
+			int mid = (from + to) >>> 1;
+			invokeAll(new Chunk(expression, columns, out, from, mid, grain),
+				new Chunk(expression, columns, out, mid, to, grain));
+		}
+	}
+}
@@ -0,0 +1,182 @@
+package com.example.smartcalc.engine;
+
+import com.example.smartcalc.engine.EvaluationResult.ErrorCode;
+import com.example.smartcalc.engine.ExpressionEvaluator.Type;
+
+/**
+ * Single-pass tokenizer reading straight from a {@link CharSequence}. Numbers, including
+ * scientific notation such as {@code 6.02e23}, are accumulated digit by digit and converted by
+ * {@link DoubleParser}, with no substring or {@link Double#parseDouble} unless there are more
+ * than 19 significant digits or the fast path cannot round. Operators and known functions
+ * resolve to {@link Opcodes} constants. Only variable names and unknown function names are
+ * allocated, by {@link #name()}, and callers can skip even that for a name already seen by
+ * checking {@link #nameEquals}.
+ *
+ * <p>The current token is described by the fields below, valid until the next call
+ * to {@link #next()}. Malformed input stops the scan with {@link #error} set rather than throwing,
+ * so partial expressions typed one key at a time fail cheaply.
+ */
+final class Scanner {
+	// significant digits that always fit in an unsigned long
+	private static final int MAX_DIGITS = 19;
+	// |exponent| beyond which any mantissa overflows or underflows; keeps the accumulator from wrapping
+	private static final int MAX_EXPONENT = 100_000;
+
+	private final CharSequence s;
+	private final int length;
+	private int pos;
+
+	Type type;
+	int start;
+	int end;
+	/** Value of a NUMBER, or of a CONST. */
+	double value;
+	/** Opcode of an OP, FUNC or FACT; -1 for a function name that is not built in. */
+	int opcode;
+	/** Why the scan stopped early, with {@link #start} at the offending text; null otherwise. */
+	ErrorCode error;
+	String detail;
+
+	Scanner(CharSequence s) {
+		this.s = s;
+		this.length = s.length();
+	}
+
+	/** Advances to the next token; false at the end of the input or on an {@link #error}. */
+	boolean next() {
+		while (pos < length && Character.isWhitespace(s.charAt(pos))) pos++;
+		if (pos == length) return false;
+		start = pos;
+		char c = s.charAt(pos);
+		opcode = -1;
+		if (isDigit(c) || (c == '.' && pos + 1 < length && isDigit(s.charAt(pos + 1)))) {
+			if (!number()) return false;
+		} else if (c == '(') {
+			single(Type.LPAREN);
+		} else if (c == ')') {
+			single(Type.RPAREN);
+		} else if (c == '!') {
+			single(Type.FACT);
+			opcode = Opcodes.FACT;
+		} else if ((opcode = Opcodes.binary(c)) >= 0) {
+			single(Type.OP);
+		} else if (Character.isLetter(c)) {
+			identifier();
+		} else {
+			return fail(ErrorCode.UNEXPECTED_CHAR, String.valueOf(c));
+		}
+		end = pos;
+		return true;
+	}
+
+	/** Text of the current token, lower-cased; the only allocating call. */
+	String name() {
+		for (int i = start; i < end; i++) {
+			if (Character.toLowerCase(s.charAt(i)) != s.charAt(i)) {
+				StringBuilder sb = new StringBuilder(end - start);
+				for (int j = start; j < end; j++) sb.append(Character.toLowerCase(s.charAt(j)));
+				return sb.toString();
+			}
+		}
+		return s.subSequence(start, end).toString();
+	}
+
+	/** Whether the current token reads {@code name}, which must be lower case, ignoring case. */
+	boolean nameEquals(String name) {
+		if (end - start != name.length()) return false;
+		for (int i = 0; i < name.length(); i++) {
+			if (Character.toLowerCase(s.charAt(start + i)) != name.charAt(i)) return false;
+		}
+		return true;
+	}
+
+	private boolean fail(ErrorCode code, String detail) {
+		error = code;
+		this.detail = detail;
+		return false;
+	}
+
+	private void single(Type t) {
+		type = t;
+		pos++;
+	}
+
+	private void identifier() {
+		int i = pos + 1;
+		while (i < length && ExpressionEvaluator.isIdentifierPart(s.charAt(i))) i++;
+		pos = i;
+		end = i;
+		if (nameEquals("pi")) {
+			type = Type.CONST;
+			value = Math.PI;
+		} else if (nameEquals("e")) {
+			type = Type.CONST;
+			value = Math.E;
+		} else if ((opcode = Opcodes.function(s, start, i)) >= 0 || nextNonSpace(i) == '(') {
+			type = Type.FUNC;
+		} else {
+			type = Type.VAR;
+		}
+	}
+
+	private char nextNonSpace(int i) {
+		while (i < length && Character.isWhitespace(s.charAt(i))) i++;
+		return i < length ? s.charAt(i) : 0;
+	}
+
+	private boolean number() {
+		long mantissa = 0;
+		int digits = 0;
+		int exp10 = 0;
+		int points = 0;
+		boolean truncated = false;
+		int i = pos;
+		for (; i < length; i++) {
+			char c = s.charAt(i);
+			if (c == '.') {
+				points++;
+				continue;
+			}
+			if (!isDigit(c)) break;
+			int d = c - '0';
+			if (digits == 0 && d == 0) {
+				// leading zero: only its place value counts
+				if (points > 0) exp10--;
+			} else if (digits < MAX_DIGITS) {
+				mantissa = mantissa * 10 + d;
+				digits++;
+				if (points > 0) exp10--;
+			} else {
+				if (points == 0) exp10++;
+				truncated |= d != 0;
+			}
+		}
+		if (points > 1) return fail(ErrorCode.BAD_NUMBER, s.subSequence(pos, i).toString());
+		if (i < length && (s.charAt(i) == 'e' || s.charAt(i) == 'E')) {
+			int j = i + 1;
+			boolean negative = false;
+			if (j < length && (s.charAt(j) == '+' || s.charAt(j) == '-')) negative = s.charAt(j++) == '-';
+			// otherwise the e starts the next token, as in 2e for 2 followed by the constant
+			if (j < length && isDigit(s.charAt(j))) {
+				int exponent = 0;
+				for (; j < length && isDigit(s.charAt(j)); j++) {
+					if (exponent < MAX_EXPONENT) exponent = exponent * 10 + (s.charAt(j) - '0');
+				}
+				exp10 += negative ? -exponent : exponent;
+				i = j;
+			}
+		}
+		double v = DoubleParser.toDouble(mantissa, exp10);
+		// dropped digits are decided by whether rounding either neighbour of the mantissa agrees
+		if (truncated && v != DoubleParser.toDouble(mantissa + 1, exp10)) v = Double.NaN;
+		if (v != v) v = Double.parseDouble(s.subSequence(pos, i).toString());
+		type = Type.NUMBER;
+		value = v;
+		pos = i;
+		return true;
+	}
+
+	private static boolean isDigit(char c) {
+		return c >= '0' && c <= '9';
+	}
+}
@@ -0,0 +1,21 @@
+package com.example.smartcalc.history;
+
+/** One evaluated expression. Entries are immutable; {@link #seq} orders them by when they were added. */
+public final class HistoryEntry {
+	public final long seq;
+	public final long timestampMillis;
+	public final String expression;
+	public final double result;
+
+	HistoryEntry(long seq, long timestampMillis, String expression, double result) {
+		this.seq = seq;
+		this.timestampMillis = timestampMillis;
+		this.expression = expression;
+		this.result = result;
+	}
+
+	@Override
+	public String toString() {
+		return expression + " = " + result;
+	}
+}
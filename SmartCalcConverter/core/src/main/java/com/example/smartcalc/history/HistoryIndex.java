@@ -0,0 +1,72 @@
+package com.example.smartcalc.history;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+
+/**
+ * The latest entry for each distinct expression, sorted two ways: by expression for prefix search
+ * and by sequence number for the most recent ones. Entries may arrive in any order, as they do
+ * when older parts of the log are indexed after newer ones; an older entry for an expression
+ * already present is ignored. Not thread-safe.
+ */
+final class HistoryIndex {
+	private final TreeMap<String, HistoryEntry> byExpression = new TreeMap<>();
+	private final TreeMap<Long, HistoryEntry> bySeq = new TreeMap<>();
+
+	/** Adds {@code e}, replacing an older entry for the same expression; false if a newer one is already here. */
+	boolean add(HistoryEntry e) {
+		HistoryEntry old = byExpression.get(e.expression);
+		if (old != null) {
+			if (old.seq >= e.seq) return false;
+			bySeq.remove(old.seq);
+		}
+		byExpression.put(e.expression, e);
+		bySeq.put(e.seq, e);
+		return true;
+	}
+
+	int size() { return bySeq.size(); }
+
+	/** Up to {@code n} entries, newest first. */
+	List<HistoryEntry> recent(int n) {
+		List<HistoryEntry> out = new ArrayList<>(Math.min(n, bySeq.size()));
+		Iterator<HistoryEntry> it = bySeq.descendingMap().values().iterator();
+		while (out.size() < n && it.hasNext()) out.add(it.next());
+		return out;
+	}
+
+	/** Up to {@code limit} entries whose expression starts with {@code prefix}, newest first. */
+	List<HistoryEntry> search(String prefix, int limit) {
+		if (prefix.isEmpty()) return recent(limit);
+		NavigableMap<String, HistoryEntry> matches = byExpression.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+		// the newest `limit` matches, oldest of them at the head
+		PriorityQueue<HistoryEntry> newest = new PriorityQueue<>(Math.max(1, limit), (a, b) -> Long.compare(a.seq, b.seq));
+		for (HistoryEntry e : matches.values()) {
+			if (newest.size() < limit) {
+				newest.add(e);
+			} else if (limit > 0 && e.seq > newest.peek().seq) {
+				newest.poll();
+				newest.add(e);
+			}
+		}
+		List<HistoryEntry> out = new ArrayList<>(newest.size());
+		while (!newest.isEmpty()) out.add(newest.poll());
+		Collections.reverse(out);
+		return out;
+	}
+
+	/** Entries up to and including sequence number {@code seq}, oldest first. */
+	List<HistoryEntry> upTo(long seq) {
+		return new ArrayList<>(bySeq.headMap(seq, true).values());
+	}
+
+	/** Drops the oldest entries until at most {@code max} remain. */
+	void trim(int max) {
+		while (bySeq.size() > max) byExpression.remove(bySeq.pollFirstEntry().getValue().expression);
+	}
+}
@@ -0,0 +1,407 @@
+package com.example.smartcalc.history;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Calculation history in an append-only, memory-mapped log, with an in-memory {@link HistoryIndex}
+ * for prefix search and the most recent entries.
+ * <p>
+ * {@link #append} only updates the index; records are written in batches on a background thread
+ * a short delay later, synced, and only then committed by the end offset in the header, so a
+ * crash loses at most the last unsynced batch. Every record ends with its own length, which lets
+ * opening read just the newest records backwards from the end; older ones are indexed in the
+ * background, and {@link #search} waits for that if it has not finished. Once the log has doubled
+ * since it was last compacted and at least half of it is superseded (an expression evaluated
+ * again) or beyond {@code maxEntries}, the live entries are rewritten to a new file that replaces
+ * the old one. A log cut short by a copy or a full disk, or whose last record is torn, is
+ * truncated to its last whole record when opened.
+ * <p>
+ * Layout, big-endian: a header of magic, format, end offset and record count, then records of
+ * length, sequence number, timestamp, result, UTF-8 expression and length again. The mapping
+ * limits a log to 2 GB. Uses {@link File} rather than {@code java.nio.file}, which Android only
+ * has from API 26.
+ */
+public final class HistoryLog implements Closeable {
+	private static final int MAGIC = 0x5343484C; // "SCHL"
+	private static final int FORMAT = 1;
+	// magic, format, end, records
+	private static final int HEADER_SIZE = 4 + 4 + 8 + 8;
+	private static final int END_OFFSET = 8;
+	private static final int RECORDS_OFFSET = 16;
+	// length, seq, timestamp, result, trailing length
+	private static final int RECORD_OVERHEAD = 4 + 8 + 8 + 8 + 4;
+	private static final int TEXT_OFFSET = 4 + 8 + 8 + 8;
+	private static final int MIN_MAPPING = 64 * 1024;
+	private static final long COMPACT_MIN_RECORDS = 1024;
+
+	public static final int DEFAULT_TAIL = 256;
+	public static final int DEFAULT_MAX_ENTRIES = 250_000;
+	public static final long DEFAULT_FLUSH_DELAY_MS = 200;
+
+	private final File file;
+	private final int maxEntries;
+	private final long flushDelayMs;
+	private final ScheduledThreadPoolExecutor writer = new ScheduledThreadPoolExecutor(1, r -> {
+		Thread t = new Thread(r, "history");
+		t.setDaemon(true);
+		return t;
+	});
+
+	// guarded by this
+	private final HistoryIndex index = new HistoryIndex();
+	private final List<HistoryEntry> pending = new ArrayList<>();
+	private boolean flushScheduled;
+	private long nextSeq;
+	private IOException failure;
+	private volatile boolean closed;
+	private volatile boolean fullyIndexed;
+
+	// the file itself is only touched by the constructor and then the writer thread
+	private RandomAccessFile raf;
+	private FileChannel channel;
+	private MappedByteBuffer map;
+	private int end;
+	private long records;
+	// start of the oldest record in the index; older ones are not indexed yet
+	private int indexedFrom;
+	private long lastWrittenSeq;
+	private long compactAt;
+
+	/** Opens or creates the log at {@code file} with the default settings. */
+	public HistoryLog(File file) throws IOException {
+		this(file, DEFAULT_TAIL, DEFAULT_MAX_ENTRIES, DEFAULT_FLUSH_DELAY_MS);
+	}
+
+	/**
+	 * Opens or creates the log at {@code file}, indexing the newest {@code tail} records before
+	 * returning and the rest in the background. Compaction keeps the newest {@code maxEntries}
+	 * entries; appends are written {@code flushDelayMs} after the first of a batch.
+	 */
+	public HistoryLog(File file, int tail, int maxEntries, long flushDelayMs) throws IOException {
+		this.file = file;
+		this.maxEntries = maxEntries;
+		this.flushDelayMs = flushDelayMs;
+		// close() writes what is pending itself rather than waiting out the flush delay
+		writer.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+		try {
+			open();
+			loadTail(tail);
+		} catch (IOException e) {
+			writer.shutdown();
+			if (raf != null) raf.close();
+			throw e;
+		}
+		compactAt = Math.max(COMPACT_MIN_RECORDS, 2 * records);
+		if (!fullyIndexed) writer.execute(this::indexOlder);
+	}
+
+	private void loadTail(int tail) throws IOException {
+		List<HistoryEntry> newest = readTail(tail);
+		if (newest == null) {
+			truncateToWholeRecords(end);
+			newest = readTail(tail);
+		}
+		fullyIndexed = indexedFrom == HEADER_SIZE;
+		for (HistoryEntry e : newest) index.add(e);
+		nextSeq = newest.isEmpty() ? 0 : newest.get(0).seq + 1;
+		lastWrittenSeq = nextSeq - 1;
+	}
+
+	// up to tail records back from the end, newest first, or null if one of them is damaged
+	private List<HistoryEntry> readTail(int tail) throws IOException {
+		List<HistoryEntry> newest = new ArrayList<>();
+		int pos = end;
+		while (pos > HEADER_SIZE && newest.size() < tail) {
+			int length = map.getInt(pos - 4);
+			if (length < RECORD_OVERHEAD || length > pos - HEADER_SIZE || map.getInt(pos - length) != length) return null;
+			pos -= length;
+			newest.add(read(pos));
+		}
+		indexedFrom = pos;
+		return newest;
+	}
+
+	// commits the whole records found walking forward from the header, stopping at limit or the first damaged one
+	private void truncateToWholeRecords(long limit) {
+		int pos = HEADER_SIZE;
+		long n = 0;
+		while (limit - pos >= RECORD_OVERHEAD) {
+			int length = map.getInt(pos);
+			if (length < RECORD_OVERHEAD || length > limit - pos || map.getInt(pos + length - 4) != length) break;
+			pos += length;
+			n++;
+		}
+		map.putLong(END_OFFSET, pos);
+		map.putLong(RECORDS_OFFSET, n);
+		map.force();
+		end = pos;
+		records = n;
+	}
+
+	/** Records {@code expression} and its result; the write happens later on the background thread. */
+	public synchronized HistoryEntry append(String expression, double result) {
+		if (closed) throw new IllegalStateException("History log closed");
+		HistoryEntry e = new HistoryEntry(nextSeq++, System.currentTimeMillis(), expression, result);
+		index.add(e);
+		pending.add(e);
+		if (!flushScheduled) {
+			flushScheduled = true;
+			writer.schedule(this::writePending, flushDelayMs, TimeUnit.MILLISECONDS);
+		}
+		return e;
+	}
+
+	/** Up to {@code n} entries, newest first, one per distinct expression. */
+	public List<HistoryEntry> recent(int n) {
+		synchronized (this) {
+			if (fullyIndexed || index.size() >= n) return index.recent(n);
+		}
+		awaitIndexed();
+		synchronized (this) {
+			return index.recent(n);
+		}
+	}
+
+	/**
+	 * Up to {@code limit} entries whose expression starts with {@code prefix}, newest first. The
+	 * first search after opening a large log may wait for its older records to be indexed.
+	 */
+	public List<HistoryEntry> search(String prefix, int limit) {
+		awaitIndexed();
+		synchronized (this) {
+			return index.search(prefix, limit);
+		}
+	}
+
+	/** Writes anything appended so far and waits for it to be synced. */
+	public void flush() throws IOException {
+		await(writer.submit(this::writePending));
+		synchronized (this) {
+			if (failure != null) throw failure;
+		}
+	}
+
+	/** Writes what is pending and closes the file; later appends throw. */
+	@Override
+	public void close() throws IOException {
+		synchronized (this) {
+			if (closed) return;
+			closed = true;
+		}
+		writer.execute(this::writePending);
+		writer.shutdown();
+		try {
+			writer.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		channel.close();
+		raf.close();
+		synchronized (this) {
+			if (failure != null) throw failure;
+		}
+	}
+
+	private void open() throws IOException {
+		raf = new RandomAccessFile(file, "rw");
+		channel = raf.getChannel();
+		long size = channel.size();
+		if (size > Integer.MAX_VALUE) throw new IOException("History log too large: " + file);
+		map = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(size, MIN_MAPPING));
+		if (size < HEADER_SIZE) {
+			map.putInt(0, MAGIC);
+			map.putInt(4, FORMAT);
+			map.putLong(END_OFFSET, HEADER_SIZE);
+			map.putLong(RECORDS_OFFSET, 0);
+			map.force();
+		} else if (map.getInt(0) != MAGIC || map.getInt(4) != FORMAT) {
+			throw new IOException("Bad history log: " + file);
+		}
+		long committed = map.getLong(END_OFFSET);
+		if (committed < HEADER_SIZE || committed > size && size >= HEADER_SIZE) {
+			// an end offset outside the file, e.g. one cut short: keep the whole records it still has
+			truncateToWholeRecords(size);
+			return;
+		}
+		end = (int) committed;
+		records = map.getLong(RECORDS_OFFSET);
+	}
+
+	private HistoryEntry read(int pos) throws IOException {
+		int length = map.getInt(pos);
+		if (length < RECORD_OVERHEAD || length > end - pos || map.getInt(pos + length - 4) != length) throw corrupt(pos);
+		byte[] text = new byte[length - RECORD_OVERHEAD];
+		ByteBuffer b = map.duplicate();
+		b.position(pos + TEXT_OFFSET);
+		b.get(text);
+		return new HistoryEntry(map.getLong(pos + 4), map.getLong(pos + 12), new String(text, StandardCharsets.UTF_8), map.getDouble(pos + 20));
+	}
+
+	private IOException corrupt(int pos) {
+		return new IOException("Corrupt history log at " + pos + ": " + file);
+	}
+
+	// writer thread from here on
+
+	private void writePending() {
+		List<HistoryEntry> batch;
+		synchronized (this) {
+			batch = new ArrayList<>(pending);
+			pending.clear();
+			flushScheduled = false;
+		}
+		if (batch.isEmpty()) return;
+		try {
+			write(batch);
+			if (records >= compactAt) compact();
+		} catch (IOException e) {
+			fail(e);
+		}
+	}
+
+	private void write(List<HistoryEntry> batch) throws IOException {
+		byte[][] texts = new byte[batch.size()][];
+		long size = 0;
+		for (int i = 0; i < texts.length; i++) {
+			texts[i] = batch.get(i).expression.getBytes(StandardCharsets.UTF_8);
+			size += RECORD_OVERHEAD + texts[i].length;
+		}
+		ensureCapacity(end + size);
+		int pos = end;
+		for (int i = 0; i < texts.length; i++) pos = put(map, pos, batch.get(i), texts[i]);
+		// the records must be durable before the header that commits them
+		map.force();
+		map.putLong(END_OFFSET, pos);
+		map.putLong(RECORDS_OFFSET, records + batch.size());
+		map.force();
+		end = pos;
+		records += batch.size();
+		lastWrittenSeq = batch.get(batch.size() - 1).seq;
+	}
+
+	private static int put(ByteBuffer b, int pos, HistoryEntry e, byte[] text) {
+		int length = RECORD_OVERHEAD + text.length;
+		b.putInt(pos, length);
+		b.putLong(pos + 4, e.seq);
+		b.putLong(pos + 12, e.timestampMillis);
+		b.putDouble(pos + 20, e.result);
+		for (int i = 0; i < text.length; i++) b.put(pos + TEXT_OFFSET + i, text[i]);
+		b.putInt(pos + length - 4, length);
+		return pos + length;
+	}
+
+	private void ensureCapacity(long needed) throws IOException {
+		if (needed <= map.capacity()) return;
+		if (needed > Integer.MAX_VALUE) throw new IOException("History log full: " + file);
+		long capacity = Math.min(Integer.MAX_VALUE, Math.max(needed, 2L * map.capacity()));
+		map = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+	}
+
+	private void indexOlder() {
+		try {
+			// nothing reads the index once closed, so closing cuts this short
+			indexOlderRecords(true);
+		} catch (IOException e) {
+			fail(e);
+		}
+	}
+
+	private void indexOlderRecords(boolean untilClosed) throws IOException {
+		if (fullyIndexed) return;
+		List<HistoryEntry> older = new ArrayList<>();
+		for (int pos = HEADER_SIZE; pos < indexedFrom; pos += map.getInt(pos)) {
+			if (untilClosed && closed) return;
+			older.add(read(pos));
+		}
+		synchronized (this) {
+			for (HistoryEntry e : older) index.add(e);
+		}
+		indexedFrom = HEADER_SIZE;
+		fullyIndexed = true;
+	}
+
+	private void compact() throws IOException {
+		indexOlderRecords(false);
+		boolean overCapacity;
+		List<HistoryEntry> live;
+		synchronized (this) {
+			overCapacity = index.size() > maxEntries;
+			index.trim(maxEntries);
+			// later entries are still pending and go to the new file with the next batch
+			live = index.upTo(lastWrittenSeq);
+		}
+		if (!overCapacity && records < 2L * live.size()) {
+			compactAt = Math.max(COMPACT_MIN_RECORDS, 2 * records);
+			return;
+		}
+		File tmp = new File(file.getPath() + ".tmp");
+		try (RandomAccessFile out = new RandomAccessFile(tmp, "rw")) {
+			out.setLength(0);
+			FileChannel ch = out.getChannel();
+			ByteBuffer buf = ByteBuffer.allocate(MIN_MAPPING);
+			long pos = HEADER_SIZE;
+			buf.putInt(MAGIC).putInt(FORMAT).putLong(0).putLong(live.size());
+			for (HistoryEntry e : live) {
+				byte[] text = e.expression.getBytes(StandardCharsets.UTF_8);
+				int length = RECORD_OVERHEAD + text.length;
+				if (buf.remaining() < length) {
+					drain(ch, buf);
+					if (buf.capacity() < length) buf = ByteBuffer.allocate(length);
+				}
+				put(buf, buf.position(), e, text);
+				buf.position(buf.position() + length);
+				pos += length;
+			}
+			drain(ch, buf);
+			if (pos > Integer.MAX_VALUE) throw new IOException("History log full: " + file);
+			ch.force(true);
+			// commit only once the records are on disk, as for appends
+			ch.write(ByteBuffer.allocate(8).putLong(0, pos), END_OFFSET);
+			ch.force(true);
+		}
+		channel.close();
+		raf.close();
+		boolean renamed = tmp.renameTo(file);
+		open();
+		if (!renamed) throw new IOException("Cannot replace " + file);
+		indexedFrom = HEADER_SIZE;
+		compactAt = Math.max(COMPACT_MIN_RECORDS, 2 * records);
+	}
+
+	private static void drain(FileChannel ch, ByteBuffer buf) throws IOException {
+		buf.flip();
+		while (buf.hasRemaining()) ch.write(buf);
+		buf.clear();
+	}
+
+	private synchronized void fail(IOException e) {
+		if (failure == null) failure = e;
+	}
+
+	private void awaitIndexed() {
+		if (!fullyIndexed) await(writer.submit(this::indexOlder));
+	}
+
+	private static void await(Future<?> f) {
+		try {
+			f.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("History task failed", e.getCause());
+		}
+	}
+}
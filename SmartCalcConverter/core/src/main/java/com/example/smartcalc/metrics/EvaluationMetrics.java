@@ -0,0 +1,189 @@
+package com.example.smartcalc.metrics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Process-wide counters for the expression engine and the converter: per-stage latency
+ * histograms, token counts, errors by kind, conversions per category and a short audit trail of
+ * recent evaluations. Disabled by default; while disabled every hook is one volatile read and a
+ * branch, and no clock is read.
+ *
+ * <p>Stage hooks pair up as {@code long t = start(); ...; stop(Stage.X, t);}.
+ */
+public final class EvaluationMetrics {
+	public enum Stage { TOKENIZE, TO_RPN, COMPILE, EVALUATE, CONVERT }
+
+	public enum ErrorKind { MISMATCHED_PARENS, STACK_UNDERFLOW, UNKNOWN_FUNCTION, UNBOUND_VARIABLE, UNEXPECTED_CHAR, BAD_NUMBER, BAD_EXPRESSION, OTHER }
+
+	private static final int AUDIT_CAPACITY = 64;
+
+	private static volatile boolean enabled;
+	private static final Histogram[] STAGES = new Histogram[Stage.values().length];
+	private static final Histogram TOKENS = new Histogram();
+	private static final AtomicLongArray ERRORS = new AtomicLongArray(ErrorKind.values().length);
+	private static final ConcurrentHashMap<String, AtomicLong> CONVERSIONS = new ConcurrentHashMap<>();
+	private static final AtomicReferenceArray<AuditEntry> AUDIT = new AtomicReferenceArray<>(AUDIT_CAPACITY);
+	private static final AtomicLong AUDIT_SEQ = new AtomicLong();
+
+	static {
+		for (int i = 0; i < STAGES.length; i++) STAGES[i] = new Histogram();
+	}
+
+	private EvaluationMetrics() {}
+
+	public static boolean isEnabled() { return enabled; }
+
+	public static void setEnabled(boolean on) { enabled = on; }
+
+	/** Start time for {@link #stop}, or 0 when disabled. */
+	public static long start() {
+		return enabled ? System.nanoTime() : 0;
+	}
+
+	public static void stop(Stage stage, long start) {
+		if (start != 0) STAGES[stage.ordinal()].record(System.nanoTime() - start);
+	}
+
+	public static void tokens(int count) {
+		if (enabled) TOKENS.record(count);
+	}
+
+	public static void error(IllegalArgumentException e) {
+		if (enabled) ERRORS.incrementAndGet(classify(e).ordinal());
+	}
+
+	public static void error(ErrorKind kind) {
+		if (enabled) ERRORS.incrementAndGet(kind.ordinal());
+	}
+
+	/**
+	 * The per-category conversion counter; callers look it up once and keep it, so counting a
+	 * conversion is a single {@link AtomicLong#incrementAndGet()} with no map lookup.
+	 */
+	public static AtomicLong conversionCounter(String category) {
+		// get and putIfAbsent rather than computeIfAbsent, which Android only has from API 24
+		AtomicLong counter = CONVERSIONS.get(category);
+		if (counter != null) return counter;
+		AtomicLong raced = CONVERSIONS.putIfAbsent(category, counter = new AtomicLong());
+		return raced != null ? raced : counter;
+	}
+
+	public static void conversion(AtomicLong counter) {
+		if (enabled) counter.incrementAndGet();
+	}
+
+	/** Appends to the audit trail, overwriting the oldest of the last {@value #AUDIT_CAPACITY} entries. */
+	public static void audit(String source, long nanos, IllegalArgumentException error) {
+		if (enabled) audit(source, nanos, error == null ? null : classify(error));
+	}
+
+	/** As {@link #audit(String, long, IllegalArgumentException)}, for callers that report errors without exceptions. */
+	public static void audit(String source, long nanos, ErrorKind error) {
+		if (!enabled) return;
+		long seq = AUDIT_SEQ.getAndIncrement();
+		AUDIT.set((int) (seq % AUDIT_CAPACITY), new AuditEntry(seq, source, nanos, error));
+	}
+
+	public static ErrorKind classify(IllegalArgumentException e) {
+		if (e instanceof NumberFormatException) return ErrorKind.BAD_NUMBER;
+		String m = e.getMessage();
+		if (m == null) return ErrorKind.OTHER;
+		if (m.startsWith("Mismatched parens")) return ErrorKind.MISMATCHED_PARENS;
+		if (m.startsWith("Stack underflow")) return ErrorKind.STACK_UNDERFLOW;
+		if (m.startsWith("Unknown func")) return ErrorKind.UNKNOWN_FUNCTION;
+		if (m.startsWith("Unbound variable")) return ErrorKind.UNBOUND_VARIABLE;
+		if (m.startsWith("Unexpected char")) return ErrorKind.UNEXPECTED_CHAR;
+		if (m.startsWith("Bad expression")) return ErrorKind.BAD_EXPRESSION;
+		return ErrorKind.OTHER;
+	}
+
+	public static Snapshot snapshot() {
+		Map<Stage, Histogram.Snapshot> stages = new EnumMap<>(Stage.class);
+		for (Stage s : Stage.values()) stages.put(s, STAGES[s.ordinal()].snapshot());
+		Map<ErrorKind, Long> errors = new EnumMap<>(ErrorKind.class);
+		for (ErrorKind k : ErrorKind.values()) errors.put(k, ERRORS.get(k.ordinal()));
+		Map<String, Long> conversions = new LinkedHashMap<>();
+		for (Map.Entry<String, AtomicLong> e : CONVERSIONS.entrySet()) conversions.put(e.getKey(), e.getValue().get());
+		List<AuditEntry> audit = new ArrayList<>();
+		long last = AUDIT_SEQ.get();
+		for (long seq = Math.max(0, last - AUDIT_CAPACITY); seq < last; seq++) {
+			AuditEntry a = AUDIT.get((int) (seq % AUDIT_CAPACITY));
+			if (a != null && a.seq == seq) audit.add(a);
+		}
+		return new Snapshot(stages, TOKENS.snapshot(), errors, conversions, audit);
+	}
+
+	/** Clears every counter; conversion counters handed out stay registered and are zeroed. */
+	public static void reset() {
+		for (Histogram h : STAGES) h.reset();
+		TOKENS.reset();
+		for (int i = 0; i < ERRORS.length(); i++) ERRORS.set(i, 0);
+		for (AtomicLong a : CONVERSIONS.values()) a.set(0);
+		for (int i = 0; i < AUDIT_CAPACITY; i++) AUDIT.set(i, null);
+	}
+
+	public static final class AuditEntry {
+		public final long seq;
+		public final String source;
+		public final long nanos;
+		/** Null when the evaluation succeeded. */
+		public final ErrorKind error;
+
+		AuditEntry(long seq, String source, long nanos, ErrorKind error) {
+			this.seq = seq;
+			this.source = source;
+			this.nanos = nanos;
+			this.error = error;
+		}
+
+		@Override
+		public String toString() {
+			return "#" + seq + " " + source + " " + nanos + "ns" + (error == null ? "" : " " + error);
+		}
+	}
+
+	public static final class Snapshot {
+		public final Map<Stage, Histogram.Snapshot> stageNanos;
+		public final Histogram.Snapshot tokenCounts;
+		public final Map<ErrorKind, Long> errors;
+		public final Map<String, Long> conversions;
+		/** Oldest first. */
+		public final List<AuditEntry> audit;
+
+		Snapshot(Map<Stage, Histogram.Snapshot> stageNanos, Histogram.Snapshot tokenCounts, Map<ErrorKind, Long> errors,
+				Map<String, Long> conversions, List<AuditEntry> audit) {
+			this.stageNanos = Collections.unmodifiableMap(stageNanos);
+			this.tokenCounts = tokenCounts;
+			this.errors = Collections.unmodifiableMap(errors);
+			this.conversions = Collections.unmodifiableMap(conversions);
+			this.audit = Collections.unmodifiableList(audit);
+		}
+
+		/** Multi-line dump for logs. */
+		@Override
+		public String toString() {
+			StringBuilder sb = new StringBuilder();
+			for (Map.Entry<Stage, Histogram.Snapshot> e : stageNanos.entrySet()) {
+				if (e.getValue().count > 0) sb.append(e.getKey()).append(" ns: ").append(e.getValue()).append('\n');
+			}
+			if (tokenCounts.count > 0) sb.append("tokens: ").append(tokenCounts).append('\n');
+			for (Map.Entry<ErrorKind, Long> e : errors.entrySet()) {
+				if (e.getValue() > 0) sb.append("error ").append(e.getKey()).append(": ").append(e.getValue()).append('\n');
+			}
+			for (Map.Entry<String, Long> e : conversions.entrySet()) {
+				if (e.getValue() > 0) sb.append("convert ").append(e.getKey()).append(": ").append(e.getValue()).append('\n');
+			}
+			for (AuditEntry a : audit) sb.append(a).append('\n');
+			return sb.toString();
+		}
+	}
+}
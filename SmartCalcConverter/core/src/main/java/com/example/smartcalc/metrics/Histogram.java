@@ -0,0 +1,78 @@
+package com.example.smartcalc.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of non-negative longs in power-of-two buckets: bucket {@code b} counts values
+ * in {@code [2^(b-1), 2^b)}, bucket 0 counts zeros. Recording is one array increment plus two
+ * atomic adds, and a compare-and-set only when the maximum grows; percentiles are accurate to
+ * within a factor of two, which is enough to see which stage dominates. Atomics rather than
+ * LongAdder, which Android only has from API 24; the hooks are hit from one or two threads, so
+ * there is little contention to spread.
+ */
+public final class Histogram {
+	private static final int BUCKETS = 64;
+
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+	private final AtomicLong count = new AtomicLong();
+	private final AtomicLong sum = new AtomicLong();
+	private final AtomicLong max = new AtomicLong();
+
+	public void record(long value) {
+		if (value < 0) value = 0;
+		buckets.incrementAndGet(Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(value)));
+		count.incrementAndGet();
+		sum.addAndGet(value);
+		for (long m = max.get(); value > m && !max.compareAndSet(m, value); m = max.get()) {}
+	}
+
+	public Snapshot snapshot() {
+		long[] b = new long[BUCKETS];
+		for (int i = 0; i < BUCKETS; i++) b[i] = buckets.get(i);
+		return new Snapshot(b, count.get(), sum.get(), max.get());
+	}
+
+	void reset() {
+		for (int i = 0; i < BUCKETS; i++) buckets.set(i, 0);
+		count.set(0);
+		sum.set(0);
+		max.set(0);
+	}
+
+	/** Point-in-time copy; concurrent recording may make count and buckets differ by a few. */
+	public static final class Snapshot {
+		private final long[] buckets;
+		public final long count;
+		public final long sum;
+		public final long max;
+
+		Snapshot(long[] buckets, long count, long sum, long max) {
+			this.buckets = buckets;
+			this.count = count;
+			this.sum = sum;
+			this.max = max;
+		}
+
+		public double mean() { return count == 0 ? 0 : (double) sum / count; }
+
+		/** Upper bound of the bucket holding the {@code p}-th percentile, {@code 0 < p <= 100}. */
+		public long percentile(double p) {
+			long total = 0;
+			for (long b : buckets) total += b;
+			if (total == 0) return 0;
+			long rank = (long) Math.ceil(total * p / 100.0);
+			long seen = 0;
+			for (int i = 0; i < buckets.length; i++) {
+				seen += buckets[i];
+				if (seen >= rank) return i == 0 ? 0 : Math.min(max, (1L << i) - 1);
+			}
+			return max;
+		}
+
+		@Override
+		public String toString() {
+			return "n=" + count + " mean=" + Math.round(mean()) + " p50=" + percentile(50) + " p99=" + percentile(99) + " max=" + max;
+		}
+	}
+}
@@ -0,0 +1,185 @@
+package com.example.smartcalc.converter;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/** Refreshing rates from a {@link RateProvider} into a {@link RateStore}, and reopening the store. */
+public class CurrencyRatesTest {
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+
+	private static void write(File file, String... lines) throws IOException {
+		try (Writer w = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+			for (String line : lines) w.write(line + "\n");
+		}
+	}
+
+	private static Map<String, Double> rates(Object... codeRate) {
+		Map<String, Double> m = new LinkedHashMap<>();
+		for (int i = 0; i < codeRate.length; i += 2) m.put((String) codeRate[i], (Double) codeRate[i + 1]);
+		return m;
+	}
+
+	private static double usd(CrossRateMatrix m, String code) {
+		return m.rate(m.id(code), m.id("USD"));
+	}
+
+	private static CurrencyRates seeded() {
+		return new CurrencyRates(RateUpdate.full(0, 0, rates("USD", 1.0, "EUR", 1.0)));
+	}
+
+	@Test
+	public void deltaIsMergedIntoSnapshot() throws IOException {
+		File dir = tmp.newFolder("rates");
+		write(new File(dir, "snapshot.csv"), "version,1", "timestamp,1000", "USD,1", "EUR,1.1", "GBP,1.3");
+		write(new File(dir, "delta-1.csv"), "version,2", "timestamp,2000", "EUR,1.2", "JPY,0.007");
+		RateStore store = new RateStore(new File(tmp.getRoot(), "rates.bin"));
+		CurrencyRates rates = seeded();
+		rates.attach(new FileRateProvider(dir), store);
+
+		assertTrue(rates.refresh());
+		assertEquals(1, store.version());
+		assertTrue(rates.refresh());
+		assertEquals(2, store.version());
+		CrossRateMatrix m = rates.matrix();
+		assertEquals(Arrays.asList("USD", "EUR", "GBP", "JPY"), m.codes());
+		assertEquals(1.2, usd(m, "EUR"), 0);
+		assertEquals(1.3, usd(m, "GBP"), 0);
+		assertEquals(2000, m.timestampMillis);
+		assertFalse(rates.refresh());
+		assertEquals(3, rates.refreshCount());
+	}
+
+	@Test
+	public void deltaNaNRemovesCurrency() throws IOException {
+		File dir = tmp.newFolder("rates");
+		write(new File(dir, "snapshot.csv"), "version,1", "USD,1", "EUR,1.1", "GBP,1.3");
+		write(new File(dir, "delta-1.csv"), "version,2", "# GBP withdrawn", "GBP,-");
+		CurrencyRates rates = seeded();
+		rates.attach(new FileRateProvider(dir), new RateStore(new File(tmp.getRoot(), "rates.bin")));
+		rates.refresh();
+		rates.refresh();
+		assertEquals(Arrays.asList("USD", "EUR"), rates.matrix().codes());
+		assertEquals(-1, rates.matrix().id("GBP"));
+	}
+
+	@Test
+	public void mismatchedDeltaFallsBackToSnapshot() throws IOException {
+		RateStore store = new RateStore(new File(tmp.getRoot(), "rates.bin"));
+		store.apply(RateUpdate.full(1, 0, rates("USD", 1.0, "EUR", 1.1)));
+		// a provider that lost track of version 1 and answers with a delta on top of 5
+		RateProvider provider = since -> since == RateUpdate.FULL
+			? RateUpdate.full(7, 0, rates("USD", 1.0, "CHF", 1.15))
+			: RateUpdate.delta(5, 6, 0, rates("EUR", 1.2));
+		CurrencyRates rates = seeded();
+		rates.attach(provider, store);
+
+		assertTrue(rates.refresh());
+		assertEquals(7, store.version());
+		assertEquals(Arrays.asList("USD", "CHF"), rates.matrix().codes());
+		try {
+			store.apply(RateUpdate.delta(5, 8, 0, rates("EUR", 1.2)));
+			fail("delta on the wrong base applied");
+		} catch (IllegalArgumentException expected) {
+			assertEquals(7, store.version());
+		}
+	}
+
+	@Test
+	public void reopenedStoreServesLastSnapshot() throws IOException {
+		File file = new File(tmp.getRoot(), "rates.bin");
+		RateStore store = new RateStore(file);
+		assertNull(store.snapshot());
+		store.apply(RateUpdate.full(3, 1234, rates("USD", 1.0, "EUR", 1.1)));
+		store.apply(RateUpdate.delta(3, 4, 5678, rates("EUR", Double.NaN, "GBP", 1.3)));
+		// stale updates are ignored
+		store.apply(RateUpdate.full(2, 0, rates("USD", 1.0)));
+
+		CurrencyRates rates = seeded();
+		rates.attach(since -> null, new RateStore(file));
+		CrossRateMatrix m = rates.matrix();
+		assertEquals(4, m.version);
+		assertEquals(5678, m.timestampMillis);
+		assertEquals(Arrays.asList("USD", "GBP"), m.codes());
+	}
+
+	@Test
+	public void interruptedSaveLeavesPreviousVersion() throws IOException {
+		File file = new File(tmp.getRoot(), "rates.bin");
+		new RateStore(file).apply(RateUpdate.full(1, 0, rates("USD", 1.0, "EUR", 1.1)));
+		// a crash after starting the temporary file but before the rename
+		File partial = new File(file.getPath() + ".tmp");
+		try (FileOutputStream out = new FileOutputStream(partial)) {
+			out.write(new byte[] { 0x53, 0x43, 0x52 });
+		}
+
+		RateStore store = new RateStore(file);
+		assertFalse(partial.exists());
+		assertEquals(1, store.version());
+		assertEquals(1.1, store.snapshot().rate(1), 0);
+		store.apply(RateUpdate.delta(1, 2, 0, rates("EUR", 1.2)));
+		assertEquals(2, new RateStore(file).version());
+	}
+
+	@Test
+	public void currencyCategoryFollowsRefreshes() throws IOException {
+		File dir = tmp.newFolder("rates");
+		write(new File(dir, "snapshot.csv"), "version,1", "USD,1", "EUR,1.1", "GBP,1.3");
+		write(new File(dir, "delta-1.csv"), "version,2", "GBP,-", "JPY,0.007");
+		UnitCategory currency = new UnitCategory("Currency", UnitCategory.Kind.CURRENCY);
+		CurrencyRates rates = seeded();
+		currency.bindRates(rates);
+		currency.freeze();
+		int[] changes = new int[1];
+		rates.addListener(() -> changes[0]++);
+
+		rates.attach(new FileRateProvider(dir), new RateStore(new File(tmp.getRoot(), "rates.bin")));
+		rates.refresh();
+		assertEquals(1, changes[0]);
+		assertEquals(3, currency.unitCount());
+		assertEquals("GBP", currency.unitName(2));
+		assertEquals(3, currency.convert("GBP", 1.0).size());
+
+		rates.refresh();
+		assertEquals(2, changes[0]);
+		assertEquals(Arrays.asList("USD", "EUR", "JPY"), currency.listUnits());
+		assertEquals(-1, currency.unitId("GBP"));
+		assertEquals(2, currency.unitId("JPY"));
+		// a unit the view still shows after it was withdrawn converts to nothing rather than failing
+		assertTrue(currency.convert("GBP", "1").isEmpty());
+		assertFalse(rates.refresh());
+		assertEquals(2, changes[0]);
+	}
+
+	@Test
+	public void failedRefreshKeepsRates() throws IOException {
+		CurrencyRates rates = seeded();
+		rates.attach(new FileRateProvider(new File(tmp.getRoot(), "missing")), new RateStore(new File(tmp.getRoot(), "rates.bin")));
+		CrossRateMatrix before = rates.matrix();
+		try {
+			rates.refresh();
+			fail("refresh from a missing directory succeeded");
+		} catch (IOException expected) {
+			assertEquals(1, rates.refreshFailureCount());
+		}
+		assertSame(before, rates.matrix());
+	}
+}
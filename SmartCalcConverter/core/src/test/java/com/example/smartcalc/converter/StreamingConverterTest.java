@@ -0,0 +1,69 @@
+package com.example.smartcalc.converter;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/** Converting delimited files, with windows small enough that fields cross them. */
+public class StreamingConverterTest {
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+
+	private String convert(String input, int window, String from, String to) throws IOException {
+		File in = tmp.newFile();
+		File out = tmp.newFile();
+		Files.write(in.toPath(), input.getBytes(StandardCharsets.ISO_8859_1));
+		UnitCategory length = ConverterRegistry.getInstance().getCategory("Length");
+		StreamingConverter converter = new StreamingConverter(length, from, to, window);
+		StreamingConverter.Stats stats = converter.convert(in.toPath(), out.toPath());
+		String result = new String(Files.readAllBytes(out.toPath()), StandardCharsets.ISO_8859_1);
+		assertEquals(result.length(), stats.bytesWritten);
+		return result;
+	}
+
+	@Test
+	public void fieldsAcrossWindowsAreConverted() throws IOException {
+		String input = "1,2000,label,3.5e2\n0.25;name_longer_than_a_window,7\n";
+		String expected = "1000,2000000,label,350000\n250;name_longer_than_a_window,7000\n";
+		for (int window = 1; window <= input.length(); window++) {
+			assertEquals("window " + window, expected, convert(input, window, "kilometer (km)", "meter (m)"));
+		}
+	}
+
+	@Test
+	public void longLiteralsAreConverted() throws IOException {
+		StringBuilder digits = new StringBuilder("0.");
+		for (int i = 0; i < 100; i++) digits.append('3');
+		assertEquals("333.333333333,x", convert(digits + ",x", 7, "kilometer (km)", "meter (m)"));
+		assertEquals("333.333333333,x", convert(digits + ",x", 1 << 20, "kilometer (km)", "meter (m)"));
+	}
+
+	@Test
+	public void everyMagnitudeHasTheSamePrecision() throws IOException {
+		String out = convert("0.00001 1 1e20 1e-300 1e-310 1e308 -0", 1 << 20, "foot (ft)", "meter (m)");
+		assertEquals("3.048E-6 0.3048 3.048E19 3.048E-301 3.048E-311 3.048E307 0", out);
+		assertEquals("1.2345678901E-5 -1E100 Infinity", convert("1.2345678901e-5 -1e100 1e309", 1 << 20, "meter (m)", "meter (m)"));
+	}
+
+	@Test
+	public void overlongNumberFailsTheConversion() throws IOException {
+		StringBuilder input = new StringBuilder("1,");
+		for (int i = 0; i < (1 << 20) + 10; i++) input.append('9');
+		try {
+			convert(input.toString(), 1 << 16, "meter (m)", "meter (m)");
+			fail("converted a number longer than the limit");
+		} catch (IOException expected) {
+		}
+		// the same length of text is copied through
+		input.setCharAt(2, 'x');
+		assertEquals(input.toString(), convert(input.toString(), 1 << 16, "meter (m)", "meter (m)"));
+	}
+}
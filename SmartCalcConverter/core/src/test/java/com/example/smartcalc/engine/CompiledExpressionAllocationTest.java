@@ -0,0 +1,67 @@
+package com.example.smartcalc.engine;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.assertEquals;
+
+/** A warmed-up evaluation allocates nothing, interpreted or after promotion to bytecode. */
+public class CompiledExpressionAllocationTest {
+	private static final int WARMUP = 50_000;
+	private static final int RUNS = 100_000;
+	private static final String EXPRESSION = "sin(x)^2 + cos(y)^2 + x*y/(1+x) - sqrt(x*x+y*y)";
+
+	@After
+	public void restoreThreshold() {
+		ExpressionEvaluator.setJitThreshold(ExpressionEvaluator.DEFAULT_JIT_THRESHOLD);
+	}
+
+	@Test
+	public void interpreterAllocatesNothing() {
+		ExpressionEvaluator.setJitThreshold(-1);
+		CompiledExpression e = ExpressionEvaluator.compileUncached(EXPRESSION, true);
+		assertEquals(0, bytesPerEvaluation(e, new double[] { 1.5, 2.5 }, new double[e.stackSize()]));
+	}
+
+	@Test
+	public void bytecodeAllocatesNothing() {
+		ExpressionEvaluator.setJitThreshold(0);
+		CompiledExpression e = ExpressionEvaluator.compileUncached(EXPRESSION, true);
+		assertEquals(0, bytesPerEvaluation(e, new double[] { 1.5, 2.5 }, new double[e.stackSize()]));
+	}
+
+	@Test
+	public void scratchStackAllocatesNothing() {
+		ExpressionEvaluator.setJitThreshold(-1);
+		CompiledExpression e = ExpressionEvaluator.compileUncached(EXPRESSION, true);
+		assertEquals(0, bytesPerEvaluation(e, new double[] { 1.5, 2.5 }, null));
+	}
+
+	private static long bytesPerEvaluation(CompiledExpression e, double[] values, double[] stack) {
+		com.sun.management.ThreadMXBean threads = threadBean();
+		long id = Thread.currentThread().getId();
+		double sink = 0;
+		for (int i = 0; i < WARMUP; i++) sink += evaluate(e, values, stack);
+		long before = threads.getThreadAllocatedBytes(id);
+		for (int i = 0; i < RUNS; i++) sink += evaluate(e, values, stack);
+		long allocated = threads.getThreadAllocatedBytes(id) - before;
+		if (sink == 42) System.out.println(sink);
+		return allocated / RUNS;
+	}
+
+	private static double evaluate(CompiledExpression e, double[] values, double[] stack) {
+		return stack == null ? e.evaluate(values) : e.evaluate(values, stack);
+	}
+
+	private static com.sun.management.ThreadMXBean threadBean() {
+		Object bean = ManagementFactory.getThreadMXBean();
+		Assume.assumeTrue("No per-thread allocation counter", bean instanceof com.sun.management.ThreadMXBean);
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+		Assume.assumeTrue(threads.isThreadAllocatedMemorySupported());
+		threads.setThreadAllocatedMemoryEnabled(true);
+		return threads;
+	}
+}
@@ -0,0 +1,65 @@
+package com.example.smartcalc.engine;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/** Integer programs take a double shortcut; it must give what digit-by-digit evaluation gives. */
+public class DecimalEvaluationTest {
+	private static BigDecimal evaluate(String expression, MathContext mc) {
+		return ExpressionEvaluator.compile(expression).evaluate(mc);
+	}
+
+	@Test
+	public void literalsThatRoundToIntegersAreNotIntegers() {
+		assertEquals(new BigDecimal("4.0000000000000000001"), evaluate("3.0000000000000000001+1", MathContext.UNLIMITED));
+		assertEquals(new BigDecimal("6.00000000000000000003"), evaluate("2.00000000000000000001*3", MathContext.UNLIMITED));
+		assertEquals(new BigDecimal("9007199254740993"), evaluate("9007199254740993+0", MathContext.UNLIMITED));
+	}
+
+	@Test
+	public void lowPrecisionRoundsEveryStep() {
+		// literals are rounded too, so 15 is 2E+1 and 15+15 agrees with 15.5+15-0.5 rather than giving 3E+1
+		MathContext one = new MathContext(1);
+		assertEquals(new BigDecimal("4E+1"), evaluate("15+15", one));
+		assertEquals(new BigDecimal("4E+1"), evaluate("15.5+15-0.5", one));
+		assertEquals(new BigDecimal("1E+2"), evaluate("15*7", one));
+	}
+
+	@Test
+	public void integerProgramsStayExact() {
+		assertEquals(new BigDecimal("123456789012345"), evaluate("123456789012344+1", MathContext.DECIMAL64));
+		assertEquals(new BigDecimal("-7"), evaluate("-(10-3)", MathContext.UNLIMITED));
+		assertEquals(new BigDecimal("6"), evaluate("1.0*6", MathContext.UNLIMITED));
+	}
+
+	@Test
+	public void hugeExactPowersFailInsteadOfRunning() {
+		assertEquals(new BigDecimal("1024"), evaluate("2^10", MathContext.UNLIMITED));
+		assertEquals(BigDecimal.ONE, evaluate("1^999999999", MathContext.UNLIMITED));
+		// with a bounded precision the rounded power is cheap at any size
+		BigDecimal big = evaluate("2^999999999", MathContext.DECIMAL64);
+		assertEquals(301029995, big.precision() - big.scale() - 1);
+		try {
+			evaluate("2^999999999", MathContext.UNLIMITED);
+			fail("unlimited power evaluated");
+		} catch (IllegalArgumentException expected) {
+			assertTrue(expected.getMessage().startsWith("Overflow"));
+		}
+	}
+
+	@Test
+	public void overflowingLiteralsStillCompile() {
+		assertEquals(Double.POSITIVE_INFINITY, ExpressionEvaluator.evaluate("1e999+1"), 0);
+		assertEquals(new BigDecimal("1E+999"), evaluate("1e999", MathContext.UNLIMITED));
+		// exponents BigDecimal cannot represent
+		assertEquals(0, ExpressionEvaluator.evaluate("0e9999999999"), 0);
+		assertEquals(Double.POSITIVE_INFINITY, ExpressionEvaluator.tryEvaluate("1e9999999999*2").value, 0);
+		assertEquals(1, ExpressionEvaluator.tryEvaluate("0e9999999999+1").value, 0);
+	}
+}
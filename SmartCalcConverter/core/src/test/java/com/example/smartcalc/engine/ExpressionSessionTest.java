@@ -0,0 +1,97 @@
+package com.example.smartcalc.engine;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/** An {@link ExpressionSession} reads typed text the way {@link ExpressionEvaluator} reads it whole. */
+public class ExpressionSessionTest {
+	// operators, parentheses and the pieces of numbers, constants, functions and variables, plus a character nothing accepts
+	private static final String[] PIECES = {
+		"0", "1", "2", "9", ".", "e", "E", "+", "-", "*", "/", "%", "^", "!", "(", ")", " ",
+		"sin", "pi", "x", "foo", "Ln", "#",
+	};
+
+	private static String describe(EvaluationResult r) {
+		if (r.isOk()) return (Double.isNaN(r.value) ? "NaN" : Double.doubleToLongBits(r.value) + "") + " closed " + r.autoClosed;
+		return r.error + " at " + r.offset + " " + r.detail;
+	}
+
+	private static String thrown(ExpressionSession session) {
+		try {
+			double value = session.currentValue();
+			return Double.isNaN(value) ? "NaN" : Double.toString(value);
+		} catch (IllegalArgumentException e) {
+			return e.getClass().getSimpleName() + ": " + e.getMessage();
+		}
+	}
+
+	private static String thrown(String text) {
+		try {
+			double value = ExpressionEvaluator.evaluate(text);
+			return Double.isNaN(value) ? "NaN" : Double.toString(value);
+		} catch (IllegalArgumentException e) {
+			return e.getClass().getSimpleName() + ": " + e.getMessage();
+		}
+	}
+
+	private static void assertSameAsEvaluator(ExpressionSession session) {
+		String text = session.text().toString();
+		assertEquals("'" + text + "'", describe(ExpressionEvaluator.tryEvaluate(text)), describe(session.tryCurrentValue()));
+		assertEquals("'" + text + "'", thrown(text), thrown(session));
+	}
+
+	private static ExpressionSession typed(String text) {
+		ExpressionSession session = new ExpressionSession();
+		session.append(text);
+		return session;
+	}
+
+	@Test
+	public void errorsRankAsInTheEvaluator() {
+		String[] cases = {
+			"*)", "..", "1..2", ".", "2+.", "(1+2", "1+2)", "1+)", "(*)", "#)", "1)+#", "sin", "foo", "foo (1)",
+			"foo(1)+*", "x+", "x y", "2 3", "(2)(3)", "3!4", "!", "", "   ", " 1+ ", "2x", "x!", "-", "--2", "sin -1",
+		};
+		for (String text : cases) assertSameAsEvaluator(typed(text));
+		EvaluationResult r = typed("*)").tryCurrentValue();
+		assertEquals(EvaluationResult.ErrorCode.MISMATCHED_PARENS, r.error);
+		assertEquals(1, r.offset);
+		assertEquals(EvaluationResult.ErrorCode.UNEXPECTED_CHAR, typed("..").tryCurrentValue().error);
+	}
+
+	@Test
+	public void scientificNotation() {
+		String[] cases = {
+			"2e3", "2E3", "2e", "2e+", "2e+x", "2e-3", "1.5e+2*2", "2e3e4", "2ex", "1e.5", "2e5.3", ".e", "1e999", "1e-999",
+			"2 e3", "e3", "2e+3)", "(2e", "3e-", "1.e2",
+		};
+		for (String text : cases) assertSameAsEvaluator(typed(text));
+		assertEquals(2000, typed("2e3").tryCurrentValue().value, 0);
+		// not an exponent but the number 2 and the constant e, which need an operator between them
+		EvaluationResult r = typed("2e").tryCurrentValue();
+		assertEquals(EvaluationResult.ErrorCode.BAD_EXPRESSION, r.error);
+		assertEquals(1, r.offset);
+	}
+
+	@Test
+	public void randomTextMatchesWhileTypingAndDeleting() {
+		Random random = new Random(11);
+		ExpressionSession session = new ExpressionSession();
+		for (int n = 0; n < 20_000; n++) {
+			session.clear();
+			int pieces = 1 + random.nextInt(8);
+			for (int i = 0; i < pieces; i++) {
+				session.append(PIECES[random.nextInt(PIECES.length)]);
+				assertSameAsEvaluator(session);
+			}
+			int deleted = random.nextInt(session.length() + 1);
+			for (int i = 0; i < deleted; i++) {
+				session.backspace();
+				assertSameAsEvaluator(session);
+			}
+		}
+	}
+}
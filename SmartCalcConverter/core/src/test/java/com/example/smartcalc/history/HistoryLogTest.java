@@ -0,0 +1,123 @@
+package com.example.smartcalc.history;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/** Reopening, recovering and compacting a {@link HistoryLog} on disk. */
+public class HistoryLogTest {
+	// long enough that nothing is written before flush() or close()
+	private static final long NO_DELAY_FLUSH = 60_000;
+
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+
+	private File file() {
+		return new File(tmp.getRoot(), "history.log");
+	}
+
+	private static HistoryLog open(File file) throws IOException {
+		return new HistoryLog(file, HistoryLog.DEFAULT_TAIL, HistoryLog.DEFAULT_MAX_ENTRIES, NO_DELAY_FLUSH);
+	}
+
+	private static void appendNumbered(HistoryLog log, int from, int to) {
+		for (int i = from; i < to; i++) log.append(i + "+1", i + 1);
+	}
+
+	// the committed end offset from the header
+	private static long committedEnd(File file) throws IOException {
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+			raf.seek(8);
+			return raf.readLong();
+		}
+	}
+
+	@Test
+	public void reopenKeepsEntriesAndSequence() throws IOException {
+		File file = file();
+		HistoryEntry last;
+		try (HistoryLog log = open(file)) {
+			appendNumbered(log, 0, 300);
+			last = log.append("2*21", 42);
+		}
+		try (HistoryLog log = new HistoryLog(file, 16, HistoryLog.DEFAULT_MAX_ENTRIES, NO_DELAY_FLUSH)) {
+			List<HistoryEntry> recent = log.recent(2);
+			assertEquals("2*21", recent.get(0).expression);
+			assertEquals(42, recent.get(0).result, 0);
+			assertEquals(last.seq, recent.get(0).seq);
+			assertEquals("299+1", recent.get(1).expression);
+			// older than the tail read on open, so found once indexed in the background
+			assertEquals(1, log.search("17+", 10).size());
+			assertEquals(301, log.recent(1000).size());
+			assertTrue(log.append("1", 1).seq > last.seq);
+		}
+	}
+
+	@Test
+	public void truncatedFileKeepsWholeRecords() throws IOException {
+		File file = file();
+		try (HistoryLog log = open(file)) {
+			appendNumbered(log, 0, 100);
+		}
+		long end = committedEnd(file);
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+			raf.setLength(end - 10);
+		}
+		try (HistoryLog log = open(file)) {
+			assertEquals(99, log.recent(1000).size());
+			assertEquals("98+1", log.recent(1).get(0).expression);
+			log.append("x", 1);
+		}
+		try (HistoryLog log = open(file)) {
+			assertEquals(100, log.recent(1000).size());
+			assertEquals("x", log.recent(1).get(0).expression);
+		}
+	}
+
+	@Test
+	public void tornLastRecordIsDropped() throws IOException {
+		File file = file();
+		try (HistoryLog log = open(file)) {
+			appendNumbered(log, 0, 10);
+		}
+		long end = committedEnd(file);
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+			// the last record's trailing length, as if its final write never reached the disk
+			raf.seek(end - 4);
+			raf.writeInt(0);
+		}
+		try (HistoryLog log = open(file)) {
+			assertEquals(9, log.recent(100).size());
+			assertEquals("8+1", log.recent(1).get(0).expression);
+		}
+		assertTrue(committedEnd(file) < end);
+	}
+
+	@Test
+	public void compactKeepsNewestEntryPerExpression() throws IOException {
+		File file = file();
+		try (HistoryLog log = new HistoryLog(file, HistoryLog.DEFAULT_TAIL, 5, NO_DELAY_FLUSH)) {
+			// 2000 records, 10 live expressions of which the newest 5 fit
+			for (int i = 0; i < 2000; i++) log.append("x+" + i % 10, i);
+			log.flush();
+			log.append("y", -1);
+		}
+		try (HistoryLog log = open(file)) {
+			List<HistoryEntry> recent = log.recent(100);
+			assertEquals(6, recent.size());
+			assertEquals("y", recent.get(0).expression);
+			assertEquals("x+9", recent.get(1).expression);
+			assertEquals(1999, recent.get(1).result, 0);
+			assertEquals("x+5", recent.get(5).expression);
+			assertEquals(0, log.search("x+4", 10).size());
+		}
+	}
+}